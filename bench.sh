@@ -0,0 +1,27 @@
+# Runs the JMH benchmarks in bench/ against the sources in src/
+# Extra arguments go to JMH, e.g. ./bench.sh GridBenchmark -p rows=400
+JMH_VERSION=1.37
+LIB=lib
+
+fetch() {
+    [ -f "$LIB/$2-$3.jar" ] || curl -sfL -o "$LIB/$2-$3.jar" "https://repo1.maven.org/maven2/$1/$2/$3/$2-$3.jar"
+}
+
+mkdir -p $LIB
+fetch org/openjdk/jmh jmh-core $JMH_VERSION
+fetch org/openjdk/jmh jmh-generator-annprocess $JMH_VERSION
+fetch net/sf/jopt-simple jopt-simple 5.0.4
+fetch org/apache/commons commons-math3 3.6.1
+
+# JMH refuses benchmarks in the default package, so the game and the benchmarks
+# are copied into one package together, which also keeps package-private access
+mkdir -p bench_out/src/tetris
+for f in src/*.java vector/*.java bench/*.java; do
+    (echo "package tetris;"; cat "$f") > "bench_out/src/tetris/$(basename "$f")"
+done
+# vector/ needs the incubating Vector API, the benchmarks run with it where they compare it
+javac --add-modules jdk.incubator.vector -cp "$LIB/*" -d bench_out/classes bench_out/src/tetris/*.java
+cp -r src/resources bench_out/classes
+# -prof gc reports allocation rate (gc.alloc.rate.norm is bytes per operation) next to each time
+java -cp "bench_out/classes:$LIB/*" org.openjdk.jmh.Main -prof gc "$@" | tee bench_output.txt
+rm -rf bench_out
@@ -0,0 +1,100 @@
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Scoring every child of one move generator expansion, board by board and as a batch with each evaluator
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class BatchEvaluatorBenchmark {
+    @Param({ "20", "100", "400" })
+    public int rows;
+
+    private final Heuristic heuristic = Heuristic.DEFAULT;
+    private Bitboard[] children;
+    private BoardBatch batch;
+    private double[] scores;
+    private final BatchEvaluator scalar = new ScalarBatchEvaluator();
+    private final BatchEvaluator vector = new VectorBatchEvaluator();
+
+    // A game part way through, random drops until the stack is half the board high somewhere
+    @Setup(Level.Trial)
+    public void setup() {
+        Grid grid = new Grid(rows, 1, new BagGenerator(1));
+        Random random = new Random(0);
+        while (maxColumnHeight(grid.getBoard()) < grid.getRows() / 2) {
+            int shift = random.nextInt(grid.getColumns()) - grid.getColumns() / 2;
+            for (int s = 0; s < Math.abs(shift); s++) {
+                grid.apply(shift < 0 ? Input.LEFT : Input.RIGHT);
+            }
+            grid.apply(Input.HARD_DROP);
+        }
+
+        MoveGenerator generator = new MoveGenerator();
+        int count = generator.generate(grid);
+        Bitboard board = grid.getBoard();
+        children = new Bitboard[count];
+        batch = new BoardBatch(board.getHeight(), board.getColumns());
+        for (int i = 0; i < count; i++) {
+            children[i] = new Bitboard(board.getHeight(), board.getColumns());
+            children[i].copyFrom(board);
+            children[i].place(generator.getType(), generator.getRotation(i), generator.getRow(i),
+                    generator.getColumn(i));
+        }
+        scores = new double[count + BoardBatch.LANES];
+    }
+
+    private static int maxColumnHeight(Bitboard board) {
+        int height = 0;
+        for (int c = 0; c < board.getColumns(); c++) {
+            height = Math.max(height, board.getColumnHeight(c));
+        }
+        return height;
+    }
+
+    @Benchmark
+    public double oneAtATime() {
+        double best = Double.NEGATIVE_INFINITY;
+        for (Bitboard child : children) {
+            best = Math.max(best, heuristic.evaluate(child, 0));
+        }
+        return best;
+    }
+
+    @Benchmark
+    public int scalarBatch() {
+        fill();
+        scalar.computeFeatures(batch);
+        return batch.wells[0];
+    }
+
+    @Benchmark
+    public int vectorBatch() {
+        fill();
+        vector.computeFeatures(batch);
+        return batch.wells[0];
+    }
+
+    // Batch layout included, the search pays for it on every expansion
+    private void fill() {
+        batch.clear();
+        for (Bitboard child : children) {
+            batch.add(child);
+        }
+    }
+}
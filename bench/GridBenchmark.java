@@ -0,0 +1,63 @@
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Engine hot paths, run through bench.sh so every result also reports allocation rate (-prof gc)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridBenchmark {
+    @Param({ "20", "100", "200", "400" })
+    public int rows;
+
+    private Grid grid;
+
+    @Setup
+    public void setup() {
+        grid = new Grid(rows, 1);
+    }
+
+    @Benchmark
+    public int tick() {
+        if (grid.isGameOver())
+            grid.reset();
+        grid.tick();
+        return grid.getScore();
+    }
+
+    @Benchmark
+    public Tetromino getGhostTetromino() {
+        return grid.getGhostTetromino();
+    }
+
+    @Benchmark
+    public int getGhostDistance() {
+        return grid.getGhostDistance();
+    }
+
+    @Benchmark
+    public int dropTetromino() {
+        if (grid.isGameOver())
+            grid.reset();
+        grid.dropTetromino();
+        return grid.getScore();
+    }
+
+    @Benchmark
+    public boolean canRotate() {
+        return grid.getCurrentTetromino().canRotate(grid.getBoard(), false);
+    }
+}
@@ -0,0 +1,37 @@
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A whole game played by gravity alone, ticking every tick against jumping from event to event
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadlessBenchmark {
+    @Param({ "20", "100" })
+    public int rows;
+
+    @Param({ "1", "10" })
+    public int level;
+
+    @Param({ "false", "true" })
+    public boolean eventDriven;
+
+    @Benchmark
+    public long gravityGame() {
+        HeadlessSimulation simulation = new HeadlessSimulation(new Grid(rows, level, 1L), eventDriven);
+        simulation.runUntilGameOver(Long.MAX_VALUE);
+        return simulation.getTick();
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineClearBenchmark {
+    @Param({ "20", "100", "200", "400" })
+    public int rows;
+
+    @Param({ "1", "2", "3", "4" })
+    public int clears;
+
+    private Grid grid;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        grid = new Grid(rows, 1);
+    }
+
+    // Fill the bottom rows again before every call, lineClearCheck removes them
+    @Setup(Level.Invocation)
+    public void fillRows() {
+        int bottom = grid.getRows() + grid.getPityRows() - 1;
+        for (int r = bottom; r > bottom - clears; r--) {
+            for (int c = 0; c < grid.getColumns(); c++) {
+                grid.getBoard().set(r, c, TetrominoType.I);
+            }
+        }
+    }
+
+    @Benchmark
+    public int lineClearCheck() {
+        // The four rows a vertical I piece resting on the floor would ask to be checked
+        int bottom = grid.getRows() + grid.getPityRows() - 1;
+        grid.lineClearCheck(bottom - 3, bottom);
+        return grid.getLines();
+    }
+}
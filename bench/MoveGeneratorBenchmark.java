@@ -0,0 +1,56 @@
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGeneratorBenchmark {
+    @Param({ "20", "100", "400" })
+    public int rows;
+
+    private Grid grid;
+    private final MoveGenerator generator = new MoveGenerator();
+
+    // A game part way through, random drops until the stack is half the board high somewhere
+    @Setup(Level.Trial)
+    public void setup() {
+        grid = new Grid(rows, 1, new BagGenerator(1));
+        Random random = new Random(0);
+        while (maxColumnHeight(grid.getBoard()) < grid.getRows() / 2) {
+            int shift = random.nextInt(grid.getColumns()) - grid.getColumns() / 2;
+            for (int s = 0; s < Math.abs(shift); s++) {
+                grid.apply(shift < 0 ? Input.LEFT : Input.RIGHT);
+            }
+            grid.apply(Input.HARD_DROP);
+        }
+    }
+
+    private static int maxColumnHeight(Bitboard board) {
+        int height = 0;
+        for (int c = 0; c < board.getColumns(); c++) {
+            height = Math.max(height, board.getColumnHeight(c));
+        }
+        return height;
+    }
+
+    @Benchmark
+    public int generate() {
+        return generator.generate(grid);
+    }
+}
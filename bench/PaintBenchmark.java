@@ -0,0 +1,88 @@
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Full frame into an offscreen image, no display needed
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+    @Param({ "20", "100", "200", "400" })
+    public int rows;
+
+    private GraphicsPanel panel;
+    private GridRenderer renderer;
+    private RenderSnapshot snapshot;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    @Setup
+    public void setup() {
+        panel = new GraphicsPanel(1, rows, 1);
+        Dimension size = panel.getPreferredSize();
+        panel.setSize(size); // Never laid out in a window, without a size the background is not cleared
+        image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+
+        // Lock pieces until the stack is half the board high so drawLocked has work to do
+        // Random drops leave the stack uneven, stopping at the tallest column keeps clear of game over
+        Grid grid = panel.getSimulation().getGrid();
+        Random random = new Random(0);
+        while (maxColumnHeight(grid.getBoard()) < grid.getRows() / 2) {
+            int shift = random.nextInt(grid.getColumns()) - grid.getColumns() / 2;
+            for (int s = 0; s < Math.abs(shift); s++) {
+                grid.apply(shift < 0 ? Input.LEFT : Input.RIGHT);
+            }
+            grid.apply(Input.HARD_DROP);
+        }
+        panel.getSimulation().publishSnapshot();
+
+        renderer = new GridRenderer(grid.getRows(), grid.getColumns(), 1);
+        snapshot = new RenderSnapshot(grid, renderer.getViewRows(), renderer.getViewColumns());
+        snapshot.capture(grid);
+    }
+
+    private static int maxColumnHeight(Bitboard board) {
+        int height = 0;
+        for (int c = 0; c < board.getColumns(); c++) {
+            height = Math.max(height, board.getColumnHeight(c));
+        }
+        return height;
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        panel.paint(g);
+        return image;
+    }
+
+    // What a lock or line clear costs, paint() only redraws the locked cells when the board changed
+    @Benchmark
+    public BufferedImage drawLocked() {
+        renderer.drawLocked(g, snapshot);
+        return image;
+    }
+}
@@ -1,7 +1,7 @@
 mkdir out
-javac -d out src/*.java
+javac --add-modules jdk.incubator.vector -d out src/*.java vector/*.java
 jar cfm Tetris.jar MANIFEST.MF -C out .
-jpackage --name Tetris --input . --main-jar Tetris.jar --main-class Frame --type exe --runtime-image "C:\Program Files\Eclipse Adoptium\jdk-17.0.8.101-hotspot" --dest release --win-shortcut
+jpackage --name Tetris --input . --main-jar Tetris.jar --main-class Frame --java-options "--add-modules jdk.incubator.vector" --type exe --runtime-image "C:\Program Files\Eclipse Adoptium\jdk-17.0.8.101-hotspot" --dest release --win-shortcut
 rm Tetris.jar
 rm -rf out
 read -p "Press enter to continue"
\ No newline at end of file
@@ -0,0 +1,61 @@
+import java.nio.ByteBuffer;
+
+// 7-bag, deals all seven pieces in a shuffled order before refilling the bag
+public class BagGenerator implements PieceGenerator {
+    private final SeededRandom random;
+    private final TetrominoType[] bag = TetrominoType.values();
+    private int index;
+    private final long seed;
+
+    BagGenerator(long seed) {
+        this.random = new SeededRandom(seed);
+        this.seed = seed;
+        this.index = bag.length;
+    }
+
+    @Override
+    public TetrominoType next() {
+        if (index == bag.length) {
+            shuffle();
+            index = 0;
+        }
+        return bag[index++];
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public int getKind() {
+        return BAG;
+    }
+
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        buffer.putLong(random.getState());
+        buffer.put((byte) index);
+        for (TetrominoType type : bag) {
+            buffer.put((byte) type.ordinal());
+        }
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+        random.setState(buffer.getLong());
+        index = buffer.get();
+        for (int i = 0; i < bag.length; i++) {
+            bag[i] = TetrominoType.values()[buffer.get()];
+        }
+    }
+
+    private void shuffle() {
+        for (int i = bag.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            TetrominoType temp = bag[i];
+            bag[i] = bag[j];
+            bag[j] = temp;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+// Computes the Heuristic features of every board in a BoardBatch, see Heuristic.evaluate(BoardBatch, double[])
+public interface BatchEvaluator {
+    // Fills the batch's feature arrays for its first size() boards, lanes past them may be written too
+    void computeFeatures(BoardBatch batch);
+}
@@ -0,0 +1,84 @@
+// Totals over a batch of finished games, filled per thread and merged when the fork-join tasks join
+public class BatchResult {
+    private int games;
+    private long totalScore;
+    private long totalLines;
+    private long totalLevel;
+    private long totalPieces;
+    private int maxScore;
+    private int maxLines;
+    private int maxLevel;
+
+    public void add(Grid grid) {
+        games++;
+        totalScore += grid.getScore();
+        totalLines += grid.getLines();
+        totalLevel += grid.getLevel();
+        totalPieces += grid.getPiecesPlaced();
+        maxScore = Math.max(maxScore, grid.getScore());
+        maxLines = Math.max(maxLines, grid.getLines());
+        maxLevel = Math.max(maxLevel, grid.getLevel());
+    }
+
+    public void merge(BatchResult other) {
+        games += other.games;
+        totalScore += other.totalScore;
+        totalLines += other.totalLines;
+        totalLevel += other.totalLevel;
+        totalPieces += other.totalPieces;
+        maxScore = Math.max(maxScore, other.maxScore);
+        maxLines = Math.max(maxLines, other.maxLines);
+        maxLevel = Math.max(maxLevel, other.maxLevel);
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    public long getTotalScore() {
+        return totalScore;
+    }
+
+    public long getTotalLines() {
+        return totalLines;
+    }
+
+    public long getTotalPieces() {
+        return totalPieces;
+    }
+
+    public double getAverageScore() {
+        return games == 0 ? 0 : (double) totalScore / games;
+    }
+
+    public double getAverageLines() {
+        return games == 0 ? 0 : (double) totalLines / games;
+    }
+
+    public double getAverageLevel() {
+        return games == 0 ? 0 : (double) totalLevel / games;
+    }
+
+    public double getAveragePieces() {
+        return games == 0 ? 0 : (double) totalPieces / games;
+    }
+
+    public int getMaxScore() {
+        return maxScore;
+    }
+
+    public int getMaxLines() {
+        return maxLines;
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games, avg score %.1f (max %d), avg lines %.1f (max %d), avg level %.2f (max %d), avg pieces %.1f",
+                games, getAverageScore(), maxScore, getAverageLines(), maxLines, getAverageLevel(), maxLevel,
+                getAveragePieces());
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+// Plays many independent headless games in parallel, one Grid per game, and aggregates their results
+public class BatchSimulator {
+    private static final int GAMES_PER_TASK = 4; // Games are long, so split almost all the way down
+
+    private final int rows;
+    private final int startingLevel;
+    private final int maxPieces; // Caps games a good policy would never lose
+    private final LongFunction<PieceGenerator> generators; // Builds a fresh generator from each game's seed
+    private final ForkJoinPool pool;
+
+    BatchSimulator(int rows, int startingLevel, int maxPieces) {
+        this(rows, startingLevel, maxPieces, UniformGenerator::new, Runtime.getRuntime().availableProcessors());
+    }
+
+    BatchSimulator(int rows, int startingLevel, int maxPieces, LongFunction<PieceGenerator> generators, int threads) {
+        this.rows = rows;
+        this.startingLevel = startingLevel;
+        this.maxPieces = maxPieces;
+        this.generators = generators;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    public BatchResult run(long[] seeds, PlacementPolicy policy, int games) {
+        if (seeds.length == 0)
+            throw new IllegalArgumentException("Games need at least one seed to be dealt from");
+        if (games < 0)
+            throw new IllegalArgumentException("Cannot play " + games + " games");
+        return pool.invoke(new Batch(seeds, policy, 0, games));
+    }
+
+    public Grid play(long seed, PlacementPolicy policy) {
+        Grid grid = new Grid(rows, startingLevel, generators.apply(seed));
+        while (!grid.isGameOver() && grid.getPiecesPlaced() < maxPieces) {
+            grid.place(policy.choosePlacement(grid));
+        }
+        return grid;
+    }
+
+    // Game i plays seeds[i % seeds.length], each pass over the seed list after the first is mixed
+    // with the pass number so game counts larger than the seed list stay distinct and reproducible
+    public static long gameSeed(long[] seeds, int game) {
+        long pass = game / seeds.length;
+        return seeds[game % seeds.length] ^ (pass * 0x9E3779B97F4A7C15L);
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private class Batch extends RecursiveTask<BatchResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] seeds;
+        private final PlacementPolicy policy;
+        private final int from;
+        private final int to;
+
+        Batch(long[] seeds, PlacementPolicy policy, int from, int to) {
+            this.seeds = seeds;
+            this.policy = policy;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BatchResult compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                BatchResult result = new BatchResult();
+                for (int game = from; game < to; game++) {
+                    result.add(play(gameSeed(seeds, game), policy));
+                }
+                return result;
+            }
+
+            int middle = (from + to) >>> 1;
+            Batch left = new Batch(seeds, policy, from, middle);
+            left.fork();
+            BatchResult result = new Batch(seeds, policy, middle, to).compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+}
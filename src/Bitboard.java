@@ -0,0 +1,491 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+public class Bitboard {
+    // Solid padding columns on both sides so walls collide like locked cells and a piece test never
+    // has to bounds check its columns, rows above and below the board read as a solid row
+    private static final int WALL = 4;
+
+    public static final byte EMPTY = 0;
+
+    private final int COLUMNS;
+    private final int HEIGHT;
+    private final int WORDS;
+
+    private final long[] EMPTY_ROW; // Only the wall bits set
+    private final byte[] EMPTY_CELLS;
+    private final long[] SOLID_ROW;
+    private final int WALL_BITS; // Set bits in EMPTY_ROW
+
+    // Rows live in a ring buffer, logical row r is physical row (head + r) % HEIGHT
+    // so clearing a line moves row references instead of copying rows, see deleteRow for what it costs
+    // Empty rows all point at EMPTY_ROW and EMPTY_CELLS, marked shared so the first write gives them arrays of
+    // their own, so a board only allocates the rows its stack reaches and a huge board costs its stack, not its size
+    private final long[][] rows; // Occupancy masks, bit (column + WALL) is set when the cell is filled
+    private final byte[][] cells; // Cell code of each cell, TetrominoType ordinal + 1 or EMPTY
+    private final int[] filled; // Number of filled cells in each row
+    private final boolean[] shared; // Row arrays held by a checkpoint or empty, copied before they are written
+    private int head;
+
+    // Per column, the topmost filled row (HEIGHT when the column is empty) and the number of empty cells
+    // below it, kept up to date on every set and deleteRow so drops never have to walk the board
+    private final int[] surface;
+    private final int[] holes;
+    private int top; // Topmost filled row, the least surface, HEIGHT when the board is empty
+
+    private long version; // Bumped on every change so readers can tell when their copy of the cells is stale
+
+    // Zobrist style hash of the occupancy, the XOR of Zobrist.row over every row. Keys are per row rather
+    // than per cell because a line clear moves every row above it, which then only re-keys those rows
+    private long hash;
+
+    Bitboard(int height, int columns) {
+        this.HEIGHT = height;
+        this.COLUMNS = columns;
+        // One spare word so a 4 bit window never reads past the end of a row
+        this.WORDS = ((columns + 2 * WALL) >>> 6) + 1;
+
+        EMPTY_ROW = new long[WORDS];
+        Arrays.fill(EMPTY_ROW, -1L);
+        for (int c = 0; c < COLUMNS; c++) {
+            EMPTY_ROW[(c + WALL) >>> 6] &= ~(1L << (c + WALL));
+        }
+        int wallBits = 0;
+        for (long word : EMPTY_ROW) {
+            wallBits += Long.bitCount(word);
+        }
+        WALL_BITS = wallBits;
+        SOLID_ROW = new long[WORDS];
+        Arrays.fill(SOLID_ROW, -1L);
+        EMPTY_CELLS = new byte[COLUMNS];
+
+        rows = new long[HEIGHT][];
+        cells = new byte[HEIGHT][];
+        filled = new int[HEIGHT];
+        shared = new boolean[HEIGHT];
+        surface = new int[COLUMNS];
+        holes = new int[COLUMNS];
+        clear();
+    }
+
+    public void clear() {
+        for (int p = 0; p < HEIGHT; p++) {
+            clearPhysicalRow(p);
+        }
+        head = 0;
+        Arrays.fill(surface, HEIGHT);
+        Arrays.fill(holes, 0);
+        top = HEIGHT;
+        hash = 0;
+        version++;
+    }
+
+    private void clearPhysicalRow(int p) {
+        rows[p] = EMPTY_ROW;
+        cells[p] = EMPTY_CELLS;
+        shared[p] = true;
+        filled[p] = 0;
+    }
+
+    // Makes a physical row safe to write, a row a checkpoint holds is replaced by a copy (or by fresh arrays
+    // when the caller overwrites it anyway) and the checkpoint keeps the original
+    private void ownRow(int p, boolean keepContents) {
+        if (!shared[p])
+            return;
+        rows[p] = keepContents ? rows[p].clone() : new long[WORDS];
+        cells[p] = keepContents ? cells[p].clone() : new byte[COLUMNS];
+        shared[p] = false;
+    }
+
+    private int physical(int row) {
+        int p = row + head;
+        return p >= HEIGHT ? p - HEIGHT : p;
+    }
+
+    private long[] bits(int row) {
+        return row < 0 || row >= HEIGHT ? SOLID_ROW : rows[physical(row)];
+    }
+
+    public static byte toCell(TetrominoType type) {
+        return (byte) (type.ordinal() + 1);
+    }
+
+    public void set(int row, int column, TetrominoType type) {
+        int p = physical(row);
+        ownRow(p, true);
+        int bit = column + WALL;
+        boolean empty = cells[p][column] == EMPTY;
+        if (empty)
+            hash ^= Zobrist.row(row, rows[p], filled[p]);
+        rows[p][bit >>> 6] |= 1L << bit;
+        if (empty) {
+            filled[p]++;
+            hash ^= Zobrist.row(row, rows[p], filled[p]);
+            if (row < surface[column]) { // New top, the cells between it and the old top become holes
+                holes[column] += surface[column] - row - 1;
+                surface[column] = row;
+                top = Math.min(top, row);
+            } else {
+                holes[column]--;
+            }
+        }
+        cells[p][column] = toCell(type);
+        version++;
+    }
+
+    public boolean isOccupied(int row, int column) {
+        return cells[physical(row)][column] != EMPTY;
+    }
+
+    public byte getCell(int row, int column) {
+        return cells[physical(row)][column];
+    }
+
+    // Copies a whole row of cell codes, the ring buffer keeps each row contiguous
+    public void copyRow(int row, byte[] destination) {
+        System.arraycopy(cells[physical(row)], 0, destination, 0, COLUMNS);
+    }
+
+    // Copies length cell codes of a row starting at column, for readers that only want part of a wide board
+    public void copyRow(int row, int column, byte[] destination, int length) {
+        System.arraycopy(cells[physical(row)], column, destination, 0, length);
+    }
+
+    // Snapshot layout is the number of rows with a filled cell, their row indices, their cell codes, then their
+    // occupancy masks, all top row first, and last the surface and hole count of each column. Empty rows are
+    // left out, so a snapshot costs the stack rather than the board. Storing the derived state with the cells
+    // makes a read nothing but bulk copies, fill counts come back from the masks
+    public int getSnapshotSize() {
+        int stored = 0;
+        for (int r = top; r < HEIGHT; r++) {
+            if (filled[physical(r)] > 0)
+                stored++;
+        }
+        return Integer.BYTES + stored * (Integer.BYTES + COLUMNS + WORDS * Long.BYTES) + 2 * COLUMNS * Integer.BYTES;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        int countAt = buffer.position();
+        buffer.putInt(0);
+        IntBuffer indices = buffer.asIntBuffer();
+        int stored = 0;
+        for (int r = top; r < HEIGHT; r++) {
+            if (filled[physical(r)] > 0) {
+                indices.put(r);
+                stored++;
+            }
+        }
+        buffer.putInt(countAt, stored);
+        skip(buffer, stored * Integer.BYTES);
+        for (int r = top; r < HEIGHT; r++) {
+            int p = physical(r);
+            if (filled[p] > 0)
+                buffer.put(cells[p]);
+        }
+        LongBuffer masks = buffer.asLongBuffer();
+        for (int r = top; r < HEIGHT; r++) {
+            int p = physical(r);
+            if (filled[p] > 0)
+                masks.put(rows[p]);
+        }
+        skip(buffer, stored * WORDS * Long.BYTES);
+        IntBuffer stats = buffer.asIntBuffer();
+        stats.put(surface);
+        stats.put(holes);
+        skip(buffer, 2 * COLUMNS * Integer.BYTES);
+    }
+
+    public void readFrom(ByteBuffer buffer) {
+        int stored = buffer.getInt();
+        if (stored < 0 || stored > HEIGHT)
+            throw new IllegalArgumentException("Snapshot of " + stored + " rows does not fit a " + HEIGHT
+                    + " row board");
+        int[] indices = new int[stored];
+        buffer.asIntBuffer().get(indices);
+        skip(buffer, stored * Integer.BYTES);
+
+        // Only the stored rows get arrays of their own, the rest go back to the shared empty row
+        head = 0;
+        for (int i = 0, r = 0; r < HEIGHT; r++) {
+            if (i < stored && indices[i] == r) {
+                ownRow(r, false);
+                i++;
+            } else {
+                clearPhysicalRow(r);
+            }
+        }
+        for (int i = 0; i < stored; i++) {
+            buffer.get(cells[indices[i]]);
+        }
+        LongBuffer masks = buffer.asLongBuffer();
+        for (int i = 0; i < stored; i++) {
+            int r = indices[i];
+            masks.get(rows[r]);
+            int count = -WALL_BITS;
+            for (long word : rows[r]) {
+                count += Long.bitCount(word);
+            }
+            filled[r] = count;
+        }
+        skip(buffer, stored * WORDS * Long.BYTES);
+        IntBuffer stats = buffer.asIntBuffer();
+        stats.get(surface);
+        stats.get(holes);
+        skip(buffer, 2 * COLUMNS * Integer.BYTES);
+        top = stored > 0 ? indices[0] : HEIGHT;
+        hash = rehash();
+        version++;
+    }
+
+    // Costs two references per row of the stack, the rows above it are empty and the rows themselves are shared
+    // until the board next writes to them, so a checkpoint only adds the stack's references and the rows changed
+    // after it was taken. Column stats are not kept, restore counts them again from the rows
+    public BoardCheckpoint checkpoint() {
+        long[][] rowsCopy = new long[HEIGHT - top][];
+        byte[][] cellsCopy = new byte[HEIGHT - top][];
+        for (int r = top; r < HEIGHT; r++) {
+            int p = physical(r);
+            rowsCopy[r - top] = rows[p];
+            cellsCopy[r - top] = cells[p];
+            shared[p] = true;
+        }
+        return new BoardCheckpoint(HEIGHT, COLUMNS, rowsCopy, cellsCopy, hash);
+    }
+
+    // Costs the checkpoint's stack, its filled counts and column stats are counted again from its rows
+    public void restore(BoardCheckpoint checkpoint) {
+        if (checkpoint.getHeight() != HEIGHT || checkpoint.getColumns() != COLUMNS)
+            throw new IllegalArgumentException("Checkpoint of a different board size");
+
+        head = 0;
+        top = HEIGHT - checkpoint.rows.length; // The checkpoint starts at its top row
+        for (int r = 0; r < top; r++) {
+            clearPhysicalRow(r);
+        }
+        Arrays.fill(surface, HEIGHT);
+        Arrays.fill(holes, 0);
+        for (int r = top; r < HEIGHT; r++) {
+            rows[r] = checkpoint.rows[r - top];
+            cells[r] = checkpoint.cells[r - top];
+            shared[r] = true;
+            int count = 0;
+            for (int c = 0; c < COLUMNS; c++) {
+                if (cells[r][c] != EMPTY) {
+                    count++;
+                    if (surface[c] == HEIGHT)
+                        surface[c] = r;
+                } else if (surface[c] < r) {
+                    holes[c]++;
+                }
+            }
+            filled[r] = count;
+        }
+        hash = checkpoint.hash;
+        version++;
+    }
+
+    private static void skip(ByteBuffer buffer, int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+
+    // Locks a piece into the board and deletes the rows it fills, returns the number of rows deleted
+    // The same board change Grid makes when a piece locks, without the scoring, for searching ahead
+    public int place(TetrominoType type, int rotation, int row, int column) {
+        int[] rowOffsets = type.getRowOffsets(rotation);
+        int[] columnOffsets = type.getColumnOffsets(rotation);
+        for (int i = 0; i < rowOffsets.length; i++) {
+            set(row + rowOffsets[i], column + columnOffsets[i], type);
+        }
+
+        int cleared = 0;
+        int top = Math.max(row + type.getMinRow(rotation), 0);
+        for (int r = top; r <= row + type.getMaxRow(rotation) && r < HEIGHT; r++) {
+            if (isRowFull(r)) {
+                deleteRow(r);
+                cleared++;
+            }
+        }
+        return cleared;
+    }
+
+    // Makes this board a copy of another of the same size. Rows above both stacks are empty on both boards
+    // and are skipped, so the copy costs the height of the taller stack rather than the whole board
+    public void copyFrom(Bitboard other) {
+        if (other.HEIGHT != HEIGHT || other.COLUMNS != COLUMNS)
+            throw new IllegalArgumentException("Boards differ in size");
+
+        int from = Math.min(top, other.top);
+        if (head != 0) { // Rows above the stacks are only known empty by logical row, so line the rings up first
+            for (int r = 0; r < from; r++) {
+                clearPhysicalRow(r);
+            }
+        }
+        for (int r = from; r < HEIGHT; r++) {
+            int p = other.physical(r);
+            if (other.filled[p] == 0) {
+                clearPhysicalRow(r);
+                continue;
+            }
+            ownRow(r, false);
+            System.arraycopy(other.rows[p], 0, rows[r], 0, WORDS);
+            System.arraycopy(other.cells[p], 0, cells[r], 0, COLUMNS);
+            filled[r] = other.filled[p];
+        }
+        head = 0;
+        System.arraycopy(other.surface, 0, surface, 0, COLUMNS);
+        System.arraycopy(other.holes, 0, holes, 0, COLUMNS);
+        top = other.top;
+        hash = other.hash;
+        version++;
+    }
+
+    // Topmost row with a filled cell, HEIGHT when the board is empty
+    public int getTop() {
+        return top;
+    }
+
+    public boolean isRowFull(int row) {
+        return filled[physical(row)] == COLUMNS;
+    }
+
+    public int getFilledCount(int row) {
+        return filled[physical(row)];
+    }
+
+    // Everything above the deleted row drops by one. Either the stack rows above it move down a slot, or the
+    // rows below it move up a slot and the ring starts one slot earlier, whichever side has fewer rows. Rows
+    // above the stack are all the shared empty row and never move. Every stack row above the deleted one is
+    // re-keyed in the hash as well, so a clear costs the stack above the line, never the board's height
+    public void deleteRow(int rowToDelete) {
+        int freed = physical(rowToDelete);
+        hash ^= Zobrist.row(rowToDelete, rows[freed], filled[freed]);
+        for (int r = top; r < rowToDelete; r++) { // Rows above the top are empty and hash to 0
+            int p = physical(r);
+            hash ^= Zobrist.row(r, rows[p], filled[p]) ^ Zobrist.row(r + 1, rows[p], filled[p]);
+        }
+        int nextTop = updateSurface(rowToDelete, cells[freed]);
+
+        if (rowToDelete - top < HEIGHT - 1 - rowToDelete) {
+            for (int r = rowToDelete; r > top; r--) {
+                moveRow(physical(r - 1), physical(r));
+            }
+            clearPhysicalRow(physical(top));
+        } else {
+            for (int r = rowToDelete; r < HEIGHT - 1; r++) {
+                moveRow(physical(r + 1), physical(r));
+            }
+            head = physical(HEIGHT - 1);
+            clearPhysicalRow(physical(0));
+        }
+        top = nextTop;
+        version++;
+    }
+
+    // Returns the board's top once the row is deleted, the least of the new surfaces
+    private int updateSurface(int rowToDelete, byte[] deleted) {
+        int nextTop = HEIGHT;
+        for (int c = 0; c < COLUMNS; c++) {
+            if (surface[c] < rowToDelete) { // Column drops by one, and loses a hole if the deleted cell was empty
+                surface[c]++;
+                if (deleted[c] == EMPTY)
+                    holes[c]--;
+            } else if (surface[c] == rowToDelete) { // Top cell removed, the next filled cell below becomes the top
+                int below = rowToDelete + 1;
+                while (below < HEIGHT && cells[physical(below)][c] == EMPTY) {
+                    below++;
+                }
+                holes[c] -= below - rowToDelete - 1;
+                surface[c] = below;
+            }
+            nextTop = Math.min(nextTop, surface[c]);
+        }
+        return nextTop;
+    }
+
+    private void moveRow(int from, int to) {
+        rows[to] = rows[from];
+        cells[to] = cells[from];
+        filled[to] = filled[from];
+        shared[to] = shared[from];
+    }
+
+    public boolean fits(TetrominoType type, int rotation, int row, int column) {
+        int[] masks = type.getRowMasks(rotation);
+        int top = row + type.getMinRow(rotation);
+        int bit = column + type.getMinColumn(rotation) + WALL;
+        int word = bit >>> 6;
+        int shift = bit & 63;
+
+        for (int i = 0; i < masks.length; i++) {
+            long[] boardRow = bits(top + i);
+            long window = boardRow[word] >>> shift;
+            if (shift > 60) // Piece straddles two words
+                window |= boardRow[word + 1] << (64 - shift);
+            if ((window & masks[i]) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    public int dropDistance(TetrominoType type, int rotation, int row, int column) {
+        // Distance from the lowest cell of each piece column to the surface of that column
+        int[] bottoms = type.getColumnBottoms(rotation);
+        int left = column + type.getMinColumn(rotation);
+        int distance = Integer.MAX_VALUE;
+
+        for (int i = 0; i < bottoms.length; i++) {
+            int gap = surface[left + i] - (row + bottoms[i]) - 1;
+            if (gap < 0) // Piece is tucked under an overhang, the surface says nothing about what is below it
+                return stepDropDistance(type, rotation, row, column);
+            distance = Math.min(distance, gap);
+        }
+        return distance;
+    }
+
+    private int stepDropDistance(TetrominoType type, int rotation, int row, int column) {
+        int distance = 0;
+        while (fits(type, rotation, row + distance + 1, column)) {
+            distance++;
+        }
+        return distance;
+    }
+
+    public int getSurface(int column) {
+        return surface[column];
+    }
+
+    public int getColumnHeight(int column) {
+        return HEIGHT - surface[column];
+    }
+
+    public int getHoles(int column) {
+        return holes[column];
+    }
+
+    private long rehash() {
+        long rebuilt = 0;
+        for (int r = 0; r < HEIGHT; r++) {
+            int p = physical(r);
+            rebuilt ^= Zobrist.row(r, rows[p], filled[p]);
+        }
+        return rebuilt;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getHeight() {
+        return HEIGHT;
+    }
+
+    public int getColumns() {
+        return COLUMNS;
+    }
+}
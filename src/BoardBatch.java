@@ -0,0 +1,75 @@
+import java.util.Arrays;
+
+// The column stats of many boards side by side for Heuristic.evaluate to score in one go. Boards are stored in
+// blocks of LANES, and within a block column by column, so one column of a whole block is contiguous and a
+// vector evaluator loads it in one go while the block stays small enough for the L1 cache as it is filled
+// Lanes past the last board only ever hold stale stats that nothing reads
+public class BoardBatch {
+    static final int LANES = 16; // Ints in a 512 bit vector, the widest there is
+
+    private final int HEIGHT;
+    private final int COLUMNS;
+    private int capacity = LANES;
+    private int size;
+
+    int[] heights; // [(board / LANES * COLUMNS + column) * LANES + board % LANES]
+    int[] holes;
+
+    // Features per board, written by the evaluators
+    int[] aggregateHeight = new int[LANES];
+    int[] totalHoles = new int[LANES];
+    int[] bumpiness = new int[LANES];
+    int[] wells = new int[LANES];
+
+    BoardBatch(int height, int columns) {
+        this.HEIGHT = height;
+        this.COLUMNS = columns;
+        heights = new int[columns * capacity];
+        holes = new int[columns * capacity];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // Returns the board's index in the batch
+    public int add(Bitboard board) {
+        if (board.getHeight() != HEIGHT || board.getColumns() != COLUMNS)
+            throw new IllegalArgumentException("Board differs in size from the batch");
+        if (size == capacity)
+            grow();
+        int i = size / LANES * COLUMNS * LANES + size % LANES;
+        for (int c = 0; c < COLUMNS; c++, i += LANES) {
+            heights[i] = board.getColumnHeight(c);
+            holes[i] = board.getHoles(c);
+        }
+        return size++;
+    }
+
+    // Blocks only ever go on the end, so the layout survives a plain copy
+    private void grow() {
+        capacity *= 2;
+        heights = Arrays.copyOf(heights, COLUMNS * capacity);
+        holes = Arrays.copyOf(holes, COLUMNS * capacity);
+        aggregateHeight = new int[capacity];
+        totalHoles = new int[capacity];
+        bumpiness = new int[capacity];
+        wells = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getHeight() {
+        return HEIGHT;
+    }
+
+    public int getColumns() {
+        return COLUMNS;
+    }
+}
@@ -0,0 +1,26 @@
+// A Bitboard's stack at one moment, top row first, the rows above it are empty. The row arrays are shared with
+// the board and with other checkpoints and are never written again once captured, the board copies a row
+// before changing it
+public class BoardCheckpoint {
+    private final int height;
+    private final int columns;
+    final long[][] rows;
+    final byte[][] cells;
+    final long hash;
+
+    BoardCheckpoint(int height, int columns, long[][] rows, byte[][] cells, long hash) {
+        this.height = height;
+        this.columns = columns;
+        this.rows = rows;
+        this.cells = cells;
+        this.hash = hash;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+}
@@ -0,0 +1,5 @@
+// Chooses moves for a Grid in place of a player
+public interface Bot {
+    // Reads the Grid without changing it, null when the game is over or the piece in play has nowhere to go
+    BotDecision decide(Grid grid);
+}
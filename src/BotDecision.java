@@ -0,0 +1,44 @@
+import java.util.List;
+
+// What a bot chose for the piece in play: the inputs to apply, HOLD first when it swaps, ending in a HARD_DROP
+public class BotDecision {
+    private final boolean hold;
+    private final Placement placement;
+    private final List<Input> inputs;
+    private final double score;
+    private final int depth; // Pieces looked ahead, by the deepest finished search or the most visited line
+
+    BotDecision(boolean hold, Placement placement, List<Input> inputs, double score, int depth) {
+        this.hold = hold;
+        this.placement = placement;
+        this.inputs = inputs;
+        this.score = score;
+        this.depth = depth;
+    }
+
+    public void applyTo(Grid grid) {
+        for (Input input : inputs) {
+            grid.apply(input);
+        }
+    }
+
+    public boolean isHold() {
+        return hold;
+    }
+
+    public Placement getPlacement() {
+        return placement;
+    }
+
+    public List<Input> getInputs() {
+        return inputs;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+}
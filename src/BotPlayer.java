@@ -0,0 +1,46 @@
+// Plays a Grid with a Bot in place of the keyboard. Each new piece gets one decision, whose inputs
+// are applied at once on the thread driving the Grid, so the bot keeps up at any gravity within its budget
+public class BotPlayer implements GridListener {
+    private final Bot bot;
+    private boolean pieceReady = true;
+    private long decisions;
+    private long thinkingNanos;
+
+    // Adds itself as a listener to see new pieces
+    BotPlayer(Grid grid, Bot bot) {
+        this.bot = bot;
+        grid.addListener(this);
+    }
+
+    @Override
+    public void pieceSpawned(Grid grid, Tetromino tetromino) {
+        pieceReady = true;
+    }
+
+    @Override
+    public void gameReset(Grid grid) {
+        pieceReady = true;
+    }
+
+    // Call from the thread that owns the Grid, does nothing until a new piece is in play
+    public void update(Grid grid) {
+        if (!pieceReady || grid.isGameOver())
+            return;
+        pieceReady = false;
+
+        long start = System.nanoTime();
+        BotDecision decision = bot.decide(grid);
+        thinkingNanos += System.nanoTime() - start;
+        decisions++;
+        if (decision != null)
+            decision.applyTo(grid);
+    }
+
+    public long getDecisions() {
+        return decisions;
+    }
+
+    public double getAverageThinkingMicros() {
+        return decisions == 0 ? 0 : thinkingNanos / 1e3 / decisions;
+    }
+}
@@ -0,0 +1,82 @@
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.function.Consumer;
+
+// An opaque image that is only painted again when invalidated or when the display drops its contents
+// Lives in video memory as a VolatileImage when the target supports it, otherwise in a BufferedImage
+public class CachedLayer {
+    private final int WIDTH;
+    private final int HEIGHT;
+
+    private VolatileImage volatileImage;
+    private BufferedImage bufferedImage;
+    private boolean dirty = true;
+
+    CachedLayer(int width, int height) {
+        this.WIDTH = width;
+        this.HEIGHT = height;
+    }
+
+    public void invalidate() {
+        dirty = true;
+    }
+
+    public void draw(Graphics2D target, int x, int y, Consumer<Graphics2D> painter) {
+        GraphicsConfiguration config = target.getDeviceConfiguration();
+        if (volatileImage == null && bufferedImage == null) {
+            volatileImage = createVolatile(config);
+            if (volatileImage == null)
+                bufferedImage = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        }
+
+        if (bufferedImage != null) {
+            if (dirty)
+                render(bufferedImage.createGraphics(), painter);
+            target.drawImage(bufferedImage, x, y, null);
+            return;
+        }
+
+        // Video memory can be taken back at any time (mode switch, screen lock), repaint until a copy survives
+        do {
+            int status = volatileImage.validate(config);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                volatileImage.flush();
+                volatileImage = createVolatile(config);
+                dirty = true;
+                if (volatileImage == null) { // Moved to a device without acceleration
+                    draw(target, x, y, painter);
+                    return;
+                }
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                dirty = true;
+            }
+
+            if (dirty)
+                render(volatileImage.createGraphics(), painter);
+            target.drawImage(volatileImage, x, y, null);
+        } while (volatileImage.contentsLost());
+    }
+
+    private VolatileImage createVolatile(GraphicsConfiguration config) {
+        try {
+            return config == null ? null : config.createCompatibleVolatileImage(WIDTH, HEIGHT, Transparency.OPAQUE);
+        } catch (RuntimeException e) { // Some headless configurations cannot make accelerated images
+            return null;
+        }
+    }
+
+    private void render(Graphics2D g, Consumer<Graphics2D> painter) {
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setComposite(AlphaComposite.SrcOver);
+        painter.accept(g);
+        g.dispose();
+        dirty = false;
+    }
+}
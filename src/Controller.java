@@ -0,0 +1,154 @@
+import java.util.Arrays;
+
+// Turns timestamped key presses and releases into Grid inputs, including delayed auto shift (DAS)
+// and auto repeat (ARR) so holding a key behaves the same on every machine regardless of OS key repeat
+// Times are System.nanoTime() values and must be handed in oldest first
+public class Controller implements GridListener {
+    public static final long DEFAULT_DAS = 167_000_000L;
+    public static final long DEFAULT_ARR = 33_000_000L;
+    public static final long DEFAULT_SOFT_DROP = 30_000_000L;
+
+    private final Grid grid;
+    private final long das; // Delay before a held direction starts repeating
+    private final long arr; // Delay between repeats, 0 slides straight to the wall
+    private final long softDropRate; // Delay between soft drops while down is held
+
+    private final boolean[] held = new boolean[Input.values().length];
+    private Input shiftDirection; // Last pressed direction still held
+    private long nextShift = Long.MAX_VALUE;
+    private boolean sliding; // ARR 0 and DAS charged, every new piece slides to the wall as soon as it appears
+    private long nextSoftDrop = Long.MAX_VALUE;
+    private long lastTime = Long.MIN_VALUE;
+
+    Controller(Grid grid) {
+        this(grid, DEFAULT_DAS, DEFAULT_ARR, DEFAULT_SOFT_DROP);
+    }
+
+    Controller(Grid grid, long das, long arr, long softDropRate) {
+        this.grid = grid;
+        this.das = das;
+        this.arr = arr;
+        this.softDropRate = softDropRate;
+        grid.addListener(this);
+    }
+
+    public void handle(int code, long time) {
+        if (InputQueue.decodePressed(code)) {
+            press(InputQueue.decodeInput(code), time);
+        } else {
+            release(InputQueue.decodeInput(code), time);
+        }
+    }
+
+    public void press(Input input, long time) {
+        time = advanceTo(time);
+        if (held[input.ordinal()]) // OS key repeat, the controller does its own repeating
+            return;
+        held[input.ordinal()] = true;
+
+        switch (input) {
+            case LEFT:
+            case RIGHT:
+                shiftDirection = input;
+                sliding = false;
+                grid.apply(input);
+                nextShift = time + das;
+                break;
+            case SOFT_DROP:
+                grid.apply(input);
+                nextSoftDrop = time + softDropRate;
+                break;
+            default:
+                grid.apply(input);
+                break;
+        }
+    }
+
+    public void release(Input input, long time) {
+        time = advanceTo(time);
+        held[input.ordinal()] = false;
+
+        switch (input) {
+            case LEFT:
+            case RIGHT:
+                if (shiftDirection != input)
+                    break;
+                // Fall back to the other direction if it is still held, charging DAS again
+                sliding = false;
+                Input other = input == Input.LEFT ? Input.RIGHT : Input.LEFT;
+                if (held[other.ordinal()]) {
+                    shiftDirection = other;
+                    grid.apply(other);
+                    nextShift = time + das;
+                } else {
+                    shiftDirection = null;
+                    nextShift = Long.MAX_VALUE;
+                }
+                break;
+            case SOFT_DROP:
+                nextSoftDrop = Long.MAX_VALUE;
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Fires every repeat due up to and including time, in time order, returns the time actually reached
+    public long advanceTo(long time) {
+        time = Math.max(time, lastTime);
+        while (true) {
+            long next = Math.min(nextShift, nextSoftDrop);
+            if (next > time)
+                break;
+
+            if (next == nextShift) {
+                if (arr <= 0) {
+                    slide();
+                    sliding = true;
+                    nextShift = Long.MAX_VALUE; // Until the next piece appears, see pieceSpawned
+                } else {
+                    grid.apply(shiftDirection);
+                    nextShift += arr;
+                }
+            } else {
+                grid.apply(Input.SOFT_DROP);
+                nextSoftDrop += softDropRate;
+            }
+        }
+        lastTime = time;
+        return time;
+    }
+
+    // Only shifts that move, a piece already against the wall sends nothing more
+    private void slide() {
+        boolean right = shiftDirection == Input.RIGHT;
+        while (!grid.isGameOver() && grid.getCurrentTetromino().canMoveSide(grid.getBoard(), right)) {
+            grid.apply(shiftDirection);
+        }
+    }
+
+    // A new piece while sliding is pinned at the next advance, not from inside the Grid's own event
+    @Override
+    public void pieceSpawned(Grid grid, Tetromino tetromino) {
+        if (sliding)
+            nextShift = lastTime;
+    }
+
+    @Override
+    public void inputApplied(Grid grid, Input input) {
+        if (sliding && input == Input.HOLD) // Swapping a held piece back in does not spawn one
+            nextShift = lastTime;
+    }
+
+    public long getNextRepeatTime() {
+        return Math.min(nextShift, nextSoftDrop);
+    }
+
+    public void reset() {
+        Arrays.fill(held, false);
+        shiftDirection = null;
+        sliding = false;
+        nextShift = Long.MAX_VALUE;
+        nextSoftDrop = Long.MAX_VALUE;
+    }
+}
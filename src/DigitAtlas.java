@@ -0,0 +1,72 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+// The digits 0-9 of one font and color rendered once side by side, numbers are drawn by copying glyphs out
+// of the strip so drawing a changing value never builds a String or lays out text
+public class DigitAtlas {
+    private final BufferedImage image;
+    private final int[] advances = new int[10]; // Pen movement per digit, the same spacing drawString uses
+    private final int[] offsets = new int[10]; // Pen position of each digit in the strip
+    private final int PADDING; // Room for glyph ink that reaches past the advance
+    private final int ASCENT;
+    private final int HEIGHT;
+
+    DigitAtlas(Font font, Color color) {
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D sg = scratch.createGraphics();
+        FontMetrics metrics = sg.getFontMetrics(font);
+        sg.dispose();
+
+        PADDING = font.getSize() / 4 + 1;
+        ASCENT = metrics.getAscent() + PADDING;
+        HEIGHT = ASCENT + metrics.getDescent() + PADDING;
+
+        int x = PADDING;
+        for (int d = 0; d < 10; d++) {
+            advances[d] = metrics.charWidth((char) ('0' + d));
+            offsets[d] = x;
+            x += advances[d] + 2 * PADDING;
+        }
+
+        image = new BufferedImage(x, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setFont(font);
+        g.setColor(color);
+        for (int d = 0; d < 10; d++) {
+            g.drawString(String.valueOf(d), offsets[d], ASCENT);
+        }
+        g.dispose();
+    }
+
+    public int getWidth(int value) {
+        int width = 0;
+        do {
+            width += advances[value % 10];
+            value /= 10;
+        } while (value > 0);
+        return width;
+    }
+
+    // Draws a non negative value with its text baseline at y, the same place drawString(x, y) would put it
+    public void draw(Graphics g, int value, int x, int y) {
+        int pen = x + getWidth(value);
+        int top = y - ASCENT;
+        do { // Least significant digit first, right to left
+            int d = value % 10;
+            pen -= advances[d];
+            int source = offsets[d] - PADDING;
+            int width = advances[d] + 2 * PADDING;
+            g.drawImage(image, pen - PADDING, top, pen - PADDING + width, top + HEIGHT, source, 0, source + width,
+                    HEIGHT, null);
+            value /= 10;
+        } while (value > 0);
+    }
+
+    public void drawCentered(Graphics g, int value, int x, int y) {
+        draw(g, value, x - getWidth(value) / 2, y);
+    }
+}
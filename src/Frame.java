@@ -1,3 +1,7 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
 import javax.swing.JFrame;
 
 public class Frame extends JFrame {
@@ -6,6 +10,14 @@ public class Frame extends JFrame {
         double scale;
         int rows;
         int startingLevel;
+        long das;
+        long arr;
+        boolean activeRendering;
+        int tickRate;
+        int fps;
+        Path replayArchive;
+        long botBudget;
+        boolean monteCarlo;
 
         // Attempt to grab values from args otherwise default to 20 rows scale 1.0
 
@@ -24,8 +36,11 @@ public class Frame extends JFrame {
             if (rows < 10) // minimum 10
                 rows = 10;
             
-            if (rows > 400) // max 400, UI breaks after 401
-                rows = 400;
+            // max 40000. The viewport renderer costs the same at any size and the bots stop at
+            // MoveGenerator.canSearch, so memory is the limit: a stack reaching the top of a 40000 row board
+            // owns every row, 20000 cell bytes and 2504 mask bytes each, about 900 MB
+            if (rows > 40000)
+                rows = 40000;
             
         } catch (Exception e) {
             rows = 20;
@@ -37,27 +52,128 @@ public class Frame extends JFrame {
             startingLevel = 1;
         }
 
+        try {
+            das = Long.parseLong(args[3]) * 1_000_000L; // Milliseconds before a held direction repeats
+        } catch (Exception e) {
+            das = Controller.DEFAULT_DAS;
+        }
+
+        try {
+            arr = Long.parseLong(args[4]) * 1_000_000L; // Milliseconds between repeats, 0 is instant
+        } catch (Exception e) {
+            arr = Controller.DEFAULT_ARR;
+        }
+
+        activeRendering = args.length < 6 || !args[5].equalsIgnoreCase("passive");
+
+        try {
+            tickRate = Math.max(Integer.parseInt(args[6]), 1);
+        } catch (Exception e) {
+            tickRate = Simulation.DEFAULT_TICK_RATE;
+        }
+
+        try {
+            fps = Integer.parseInt(args[7]); // 0 is uncapped
+        } catch (Exception e) {
+            fps = activeRendering ? GameCanvas.DEFAULT_FPS : GraphicsPanel.DEFAULT_FPS;
+        }
+
+        replayArchive = args.length > 8 && !args[8].isEmpty() ? Paths.get(args[8]) : null;
+
+        try {
+            botBudget = Long.parseLong(args[9]); // Microseconds per decision, 0 or absent plays from the keyboard
+        } catch (Exception e) {
+            botBudget = 0;
+        }
+
+        monteCarlo = args.length > 10 && args[10].equalsIgnoreCase("mcts");
+
         // The first parameter is the size/scale of the window and its components
         // A good default is 1 for the game width to be 400x800 pixels
 
         // The 2nd parameter is the # of rows, # of Columns will always be half of rows.
         // A normal tetris game typically has 20 rows and 10 columns (should be even)
+        // Boards too big for the window are drawn through a viewport that scrolls along with the current piece
+
+        // The 3rd parameter is the starting level, the 4th and 5th are the auto shift delay
+        // and auto repeat rate in milliseconds for held left/right keys
+
+        // The 6th parameter picks the renderer, "active" (default) page flips a Canvas from the render loop
+        // and "passive" paints a Swing panel through repaint()
+
+        // The 7th parameter is the simulation tick rate per second, gravity and lock delay are counted in ticks
+        // so anything but the default 200 changes the game speed. The 8th is the frame cap, 0 for uncapped
+
+        // The 9th parameter is a replay archive, when given the session is appended to it on exit, "" for none
+
+        // The 10th parameter hands the game to the heuristic bot with the given thinking time in microseconds
+        // and the 11th, "mcts", swaps it for the Monte Carlo tree search bot. Boards over about 700 rows are too
+        // big for the bots' move search and are always played from the keyboard
 
         System.out.printf("Launch parameters: %d rows, scale %.2f%n", rows, scale);
-        new Frame(scale, rows, startingLevel); // Use even number for rows thanks
+        new Frame(scale, rows, startingLevel, das, arr, activeRendering, tickRate, fps, replayArchive, botBudget,
+                monteCarlo); // Use even number for rows thanks
     }
 
-    GraphicsPanel graphicsPanel;
+    GameView gameView;
+
+    Frame(double scale, int rows, int startingLevel, long das, long arr, boolean activeRendering, int tickRate,
+            int fps, Path replayArchive, long botBudget, boolean monteCarlo) {
+        if (activeRendering) {
+            GameCanvas canvas = new GameCanvas(scale, rows, startingLevel, das, arr, tickRate, fps);
+            this.add(canvas);
+            gameView = canvas;
+        } else {
+            GraphicsPanel panel = new GraphicsPanel(scale, rows, startingLevel, das, arr, tickRate, fps);
+            this.add(panel);
+            gameView = panel;
+        }
+
+        Simulation simulation = gameView.getSimulation();
+        Bitboard board = simulation.getGrid().getBoard();
+        if (botBudget > 0 && !MoveGenerator.canSearch(board.getHeight(), board.getColumns())) {
+            System.out.println("Board too big for the bot, playing from the keyboard");
+            botBudget = 0;
+        }
+        if (botBudget > 0) {
+            // 2^18 entries, 6 MB, is a few decisions' worth of subtrees at depth 3
+            Bot bot = monteCarlo ? new MonteCarloBot(Heuristic.DEFAULT, botBudget, ForkJoinPool.commonPool())
+                    : new HeuristicBot(Heuristic.DEFAULT, 3, botBudget, ForkJoinPool.commonPool(),
+                            new TranspositionTable(18));
+            simulation.setBot(new BotPlayer(simulation.getGrid(), bot));
+        }
+        ReplayRecorder recorder = null;
+        if (replayArchive != null) {
+            recorder = new ReplayRecorder(simulation.getGrid(), simulation::getTicks);
+            simulation.getGrid().addListener(recorder);
+        }
 
-    Frame(double scale, int rows, int startingLevel) {
-        graphicsPanel = new GraphicsPanel(scale, rows, startingLevel);
-        this.add(graphicsPanel);
+        // Pacing report on exit, the counters are only approximate when read from this thread
+        // The replay is only written once the simulation thread has stopped touching the Grid
+        final ReplayRecorder sessionRecorder = recorder;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Render pacing: " + gameView.getPacer());
+            System.out.println("Simulation ticks skipped: " + simulation.getSkippedTicks() + ", inputs dropped: "
+                    + simulation.getDroppedInputs());
+            if (simulation.getBot() != null)
+                System.out.printf("Bot: %d decisions, %.0f us average%n", simulation.getBot().getDecisions(),
+                        simulation.getBot().getAverageThinkingMicros());
+            if (sessionRecorder != null) {
+                simulation.stop();
+                try {
+                    sessionRecorder.appendTo(replayArchive, simulation.getTicks());
+                    System.out.println("Replay appended to " + replayArchive);
+                } catch (IOException e) {
+                    System.err.println("Failed to write replay: " + e.getMessage());
+                }
+            }
+        }));
 
         this.setDefaultCloseOperation(EXIT_ON_CLOSE);
         this.pack();
         this.setLocationRelativeTo(null);
         this.setVisible(true);
 
-        graphicsPanel.start();
+        gameView.start();
     }
 }
@@ -0,0 +1,127 @@
+import java.util.concurrent.locks.LockSupport;
+
+// Paces a loop to a fixed period on System.nanoTime(). Waits park the thread until the deadline is closer than
+// parkNanos is known to oversleep, then spin the rest, so frames start within microseconds of their deadline
+// without spinning through the whole wait. A period of 0 runs uncapped
+public class FramePacer {
+    private static final long MAX_SPIN = 2_000_000L; // Never spin longer than this even if the OS oversleeps more
+    private static final long SPIN_MARGIN = 20_000L;
+
+    private final long PERIOD;
+    private final int MAX_LAG; // Periods behind schedule before the schedule restarts instead of catching up
+
+    private long nextFrame;
+    private long lastFrame;
+    private long parkOvershoot = 100_000L; // Running average of how late parkNanos wakes up
+
+    // Pacing measurements since the last resetStats
+    private long frames;
+    private long totalInterval;
+    private long worstInterval;
+    private long worstLateness;
+    private long droppedFrames;
+
+    FramePacer(long periodNanos, int maxLag) {
+        this.PERIOD = Math.max(periodNanos, 0);
+        this.MAX_LAG = maxLag;
+    }
+
+    // 0 or less per second is uncapped
+    public static FramePacer perSecond(int rate, int maxLag) {
+        return new FramePacer(rate <= 0 ? 0 : 1_000_000_000L / rate, maxLag);
+    }
+
+    public void start() {
+        nextFrame = System.nanoTime();
+        lastFrame = nextFrame;
+        resetStats();
+    }
+
+    // Blocks until the next frame is due. A loop that fell more than MAX_LAG periods behind, e.g. after a long
+    // GC pause, skips the missed frames rather than running them back to back
+    public void awaitNextFrame() {
+        if (PERIOD > 0) {
+            nextFrame += PERIOD;
+            long behind = System.nanoTime() - nextFrame;
+            if (behind > MAX_LAG * PERIOD) {
+                droppedFrames += behind / PERIOD;
+                nextFrame += behind / PERIOD * PERIOD;
+            }
+            waitUntil(nextFrame);
+        }
+
+        long now = System.nanoTime();
+        long interval = now - lastFrame;
+        lastFrame = now;
+        frames++;
+        totalInterval += interval;
+        worstInterval = Math.max(worstInterval, interval);
+        if (PERIOD > 0)
+            worstLateness = Math.max(worstLateness, now - nextFrame);
+    }
+
+    public void waitUntil(long deadline) {
+        while (!Thread.currentThread().isInterrupted()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return;
+
+            long park = remaining - Math.min(parkOvershoot + SPIN_MARGIN, MAX_SPIN);
+            if (park > 0) {
+                long before = System.nanoTime();
+                LockSupport.parkNanos(park);
+                long overshoot = Math.max(System.nanoTime() - before - park, 0);
+                parkOvershoot += (overshoot - parkOvershoot) / 8;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    public void resetStats() {
+        frames = 0;
+        totalInterval = 0;
+        worstInterval = 0;
+        worstLateness = 0;
+        droppedFrames = 0;
+    }
+
+    public long getPeriod() {
+        return PERIOD;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public double getAverageInterval() {
+        return frames == 0 ? 0 : (double) totalInterval / frames;
+    }
+
+    public double getFramesPerSecond() {
+        return totalInterval == 0 ? 0 : frames * 1e9 / totalInterval;
+    }
+
+    public long getWorstInterval() {
+        return worstInterval;
+    }
+
+    public long getWorstLateness() {
+        return worstLateness;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public long getParkOvershoot() {
+        return parkOvershoot;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d frames, %.1f fps, avg %.3f ms, worst %.3f ms, worst late %.3f ms, dropped %d",
+                frames, getFramesPerSecond(), getAverageInterval() / 1e6, worstInterval / 1e6, worstLateness / 1e6,
+                droppedFrames);
+    }
+}
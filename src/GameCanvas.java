@@ -0,0 +1,87 @@
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+
+// Active rendering, the render loop draws straight into a page flipped BufferStrategy instead of asking Swing
+// to repaint, so frames are neither coalesced nor delayed by the EDT
+public class GameCanvas extends Canvas implements GameView {
+    private static final long serialVersionUID = 1L;
+
+    private final Simulation simulation;
+    private final GridRenderer renderer;
+
+    public static final int DEFAULT_FPS = 240;
+    private final FramePacer pacer;
+    private volatile boolean running = false;
+
+    GameCanvas(double scale, int rows, int startingLevel) {
+        this(scale, rows, startingLevel, Controller.DEFAULT_DAS, Controller.DEFAULT_ARR);
+    }
+
+    GameCanvas(double scale, int rows, int startingLevel, long das, long arr) {
+        this(scale, rows, startingLevel, das, arr, Simulation.DEFAULT_TICK_RATE, DEFAULT_FPS);
+    }
+
+    GameCanvas(double scale, int rows, int startingLevel, long das, long arr, int tickRate, int fps) {
+        Grid grid = new Grid(rows, startingLevel);
+        renderer = new GridRenderer(grid.getRows(), grid.getColumns(), scale);
+        simulation = new Simulation(grid, das, arr, tickRate, renderer.getViewRows(), renderer.getViewColumns());
+        pacer = FramePacer.perSecond(fps, 5);
+        addKeyListener(new KeyboardInput(simulation));
+        this.setFocusable(true);
+        this.setIgnoreRepaint(true); // Every frame comes from the render loop
+        this.setPreferredSize(new Dimension(renderer.getTileSize() * renderer.getViewColumns() * 2,
+                renderer.getTileSize() * renderer.getViewRows() + 1));
+        this.setBackground(Color.BLACK);
+    }
+
+    @Override
+    public void start() { // Must be called once the canvas is displayable
+        running = true;
+        createBufferStrategy(2);
+        BufferStrategy strategy = getBufferStrategy();
+        requestFocus();
+        simulation.start();
+        pacer.start();
+
+        while (running) {
+            render(strategy);
+            pacer.awaitNextFrame(); // Limit renders to a certain fps, or none when uncapped
+        }
+        simulation.stop();
+        render(strategy);
+        strategy.dispose();
+    }
+
+    private void render(BufferStrategy strategy) {
+        RenderSnapshot snapshot = simulation.getSnapshot();
+        // The back buffer can be lost or restored while drawing, in which case the frame is drawn again
+        do {
+            do {
+                Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                g.setColor(Color.BLACK);
+                g.fillRect(0, 0, getWidth(), getHeight());
+                renderer.draw(g, snapshot);
+                if (snapshot.isGameOver()) {
+                    renderer.drawGameEnd(g);
+                }
+                g.dispose();
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync(); // Flush the pipeline so frames are not batched up on X11
+    }
+
+    @Override
+    public Simulation getSimulation() {
+        return simulation;
+    }
+
+    @Override
+    public FramePacer getPacer() {
+        return pacer;
+    }
+}
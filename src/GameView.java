@@ -0,0 +1,8 @@
+// A window surface that runs a game, either painted by Swing or actively rendered
+public interface GameView {
+    void start(); // Runs the render loop on the calling thread until the view stops
+
+    Simulation getSimulation();
+
+    FramePacer getPacer(); // Written by the render loop, other threads only get approximate measurements
+}
@@ -1,177 +1,75 @@
+import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.Font;
-import java.awt.FontFormatException;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.GraphicsEnvironment;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
-import java.io.IOException;
-import java.io.InputStream;
-import java.awt.Color;
 import javax.swing.JPanel;
 
-public class GraphicsPanel extends JPanel implements KeyListener {
-    private final Grid grid;
+// Passive rendering, frames are requested with repaint() and painted by Swing on the EDT
+public class GraphicsPanel extends JPanel implements GameView {
+    private final Simulation simulation;
+    private final GridRenderer renderer;
 
-    private final int TICK_DELAY = 5;
-    private final int FPS = 60;
+    public static final int DEFAULT_FPS = 60;
+    private final FramePacer pacer;
     private boolean running = false;
 
-    private static Font mainFont;
-
     GraphicsPanel(double scale, int rows, int startingLevel) {
-        // Most of the game logic is handled in the grid
-        grid = new Grid(rows, startingLevel, scale);
-        addKeyListener(this);
+        this(scale, rows, startingLevel, Controller.DEFAULT_DAS, Controller.DEFAULT_ARR);
+    }
+
+    GraphicsPanel(double scale, int rows, int startingLevel, long das, long arr) {
+        this(scale, rows, startingLevel, das, arr, Simulation.DEFAULT_TICK_RATE, DEFAULT_FPS);
+    }
+
+    GraphicsPanel(double scale, int rows, int startingLevel, long das, long arr, int tickRate, int fps) {
+        // Most of the game logic is handled in the grid, which runs on the simulation thread
+        // The renderer only ever draws snapshots handed over from that thread
+        Grid grid = new Grid(rows, startingLevel);
+        renderer = new GridRenderer(grid.getRows(), grid.getColumns(), scale);
+        simulation = new Simulation(grid, das, arr, tickRate, renderer.getViewRows(), renderer.getViewColumns());
+        pacer = FramePacer.perSecond(fps, 5);
+        addKeyListener(new KeyboardInput(simulation));
         this.setFocusable(true);
-        // Dimension is calculated by the tile size and rows/columns
-        this.setPreferredSize(new Dimension(grid.getTileSize() * grid.getColumns() * 2,
-                grid.getTileSize() * grid.getRows() + 1));
+        // Dimension is calculated by the tile size and the rows/columns in view
+        this.setPreferredSize(new Dimension(renderer.getTileSize() * renderer.getViewColumns() * 2,
+                renderer.getTileSize() * renderer.getViewRows() + 1));
         this.setBackground(Color.BLACK);
-
-        try {
-            // Load font as a resource stream
-            InputStream fontStream = getClass().getResourceAsStream("/resources/fonts/ChakraPetch-Medium.ttf");
-            mainFont = Font.createFont(Font.TRUETYPE_FONT, fontStream);
-            GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-            ge.registerFont(mainFont);
-        } catch (IOException | FontFormatException e) {
-            System.err.println("Main font not loaded");
-        }
     }
 
-    public void start() { // Game loop
+    @Override
+    public void start() { // Render loop, the game itself ticks on the simulation thread
         running = true;
-        long deltaT;
-        long accumulatorT = 0;
-        long lastUpdateT = System.currentTimeMillis();
-        updateObjects();
-
-        while (true) {
-            long now = System.currentTimeMillis();
-            deltaT = System.currentTimeMillis() - lastUpdateT;
-            lastUpdateT += deltaT;
-            accumulatorT += deltaT;
-
-            while (accumulatorT >= TICK_DELAY) {
-                updateObjects(); // Process one tick.
-                accumulatorT -= TICK_DELAY;
-            }
-
-            if (!running) {
-                break;
-            }
+        simulation.start();
+        pacer.start();
 
+        while (running) {
             repaint(); // Draw frame
-
-            // Limit renders to a certain fps
-            long sleepTime = 1000 / FPS - (System.currentTimeMillis() - now);
-
-            if (sleepTime > 0) {
-                try {
-                    Thread.sleep(sleepTime);
-                } catch (InterruptedException e) {
-                    System.err.println("Failed to sleep to limit FPS");
-                }
-            }
+            pacer.awaitNextFrame(); // Limit renders to a certain fps
         }
+        simulation.stop();
         repaint();
     }
 
-    private void updateObjects() {
-        grid.tick();
-    }
-
-    public void resetGame() {
-        System.out.println("Restarting");
-        grid.reset();
-    }
-
     @Override
     public void paint(Graphics graphics) {
         super.paintComponent(graphics);
         Graphics2D g = (Graphics2D) graphics;
 
-        // Drawing main tetris grid and its components
-        grid.drawGridLines(g);
-        grid.drawLocked(g);
-        grid.drawSideContainers(g);
-        grid.drawScore(g);
+        RenderSnapshot snapshot = simulation.getSnapshot();
+        renderer.draw(g, snapshot);
 
-        if (!grid.isGameOver()) {
-            grid.drawTempTetromino(g, grid.getGhostTetromino());
-            grid.drawTempTetromino(g, grid.getCurrentTetromino());
-            grid.drawQueueTetrominos(g);
-            grid.drawHold(g);
-        } else {
-            drawGameEnd(g);
+        if (snapshot.isGameOver()) {
+            renderer.drawGameEnd(g);
         }
     }
 
-    public static void drawCenteredString(Graphics g, String text, Color color, int x, int y, int size) {
-        g.setColor(color);
-        g.setFont(mainFont.deriveFont(Font.PLAIN, size));
-        int textWidth = g.getFontMetrics().stringWidth(text);
-        int xPos = x - textWidth / 2;
-        g.drawString(text, xPos, y + size);
-    }
-
-    public void drawGameEnd(Graphics g) {
-        g.setColor(new Color(0, 0, 0, 150));
-        g.fillRect(grid.getGridWidth() / 2, 0, grid.getGridWidth() + 1, grid.getGridHeight() + 1);
-        drawCenteredString(g, "You lose!", Color.WHITE, grid.getGridWidth(), (int) (50 * grid.getScale()),
-                grid.getUITileSize());
-        drawCenteredString(g, "Press R to play again", Color.WHITE, grid.getGridWidth(),
-                (int) (50 * grid.getScale()) * 2, grid.getUITileSize());
-    }
-
-    @Override
-    public void keyTyped(KeyEvent e) {
-
-    }
-
     @Override
-    public void keyPressed(KeyEvent e) {
-        if (e.getKeyCode() == KeyEvent.VK_R && grid.isGameOver()) {
-            resetGame();
-        }
-        if (grid.isGameOver())
-            return;
-
-        switch (e.getKeyCode()) {
-            case KeyEvent.VK_RIGHT:
-                grid.moveTetrominoRight();
-                break;
-            case KeyEvent.VK_LEFT:
-                grid.moveTetrominoLeft();
-                break;
-            case KeyEvent.VK_UP:
-                grid.rotate(false);
-                break;
-            case KeyEvent.VK_SPACE:
-                grid.dropTetromino();
-                break;
-            case KeyEvent.VK_DOWN:
-                grid.moveTetrominoDown();
-                break;
-            case KeyEvent.VK_CONTROL:
-                grid.rotate(true);
-                break;
-            case KeyEvent.VK_C:
-                grid.hold();
-                break;
-            default:
-                break;
-        }
+    public Simulation getSimulation() {
+        return simulation;
     }
 
     @Override
-    public void keyReleased(KeyEvent e) {
-
-    }
-
-    public static Font getMainFont() {
-        return mainFont;
+    public FramePacer getPacer() {
+        return pacer;
     }
-}
\ No newline at end of file
+}
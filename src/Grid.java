@@ -1,9 +1,8 @@
-import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.Point;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
 public class Grid {
     private boolean gameOver = false;
@@ -12,6 +11,7 @@ public class Grid {
     private final int startingLevel;
     // private int combo = 0; 
     private int lines;
+    private int piecesPlaced;
 
     // Gravity constants scale by level https://harddrop.com/wiki/Tetris_Worlds
     private final double[] GRAVITY = new double[] { 0.01667, 0.021017, 0.026977, 0.035256, 0.04693, 0.06361, 0.0879,
@@ -22,37 +22,44 @@ public class Grid {
     private final int COLUMNS;
     private final int ROWS;
     private final int PITY_ROWS = 2;
-    private final double SCALE;
 
-    private final int TILE_SIZE;
-    private final int UI_TILE_SIZE;
-    private final int GRID_WIDTH;
-    private final int GRID_HEIGHT;
-
-    private char[][] grid;
+    private Bitboard board; // Cell types, occupancy masks and row fill counts
     private LinkedList<Tetromino> queue;
 
     private boolean canHold;
     private Tetromino currentTetromino;
     private Tetromino heldTetromino;
 
-    Grid(int rows, int startingLevel, double scale) {
-        this.SCALE = scale;
+    private final PieceGenerator generator; // Each game owns its generator so games can run in parallel and be replayed
+
+    private final List<GridListener> listeners = new ArrayList<>();
+
+    // Pure game rules, drawing is done by GridRenderer so a Grid can run headless without AWT
+    Grid(int rows, int startingLevel) {
+        this(rows, startingLevel, System.nanoTime());
+    }
+
+    Grid(int rows, int startingLevel, long seed) {
+        this(rows, startingLevel, new UniformGenerator(seed));
+    }
+
+    Grid(int rows, int startingLevel, PieceGenerator generator) {
         this.ROWS = rows;
         this.COLUMNS = rows / 2;
         this.startingLevel = startingLevel;
         this.level = startingLevel;
-
-        this.GRID_WIDTH = (int) (400 * scale);
-        this.GRID_HEIGHT = GRID_WIDTH * 2;
-        this.TILE_SIZE = GRID_WIDTH / COLUMNS;
-        this.UI_TILE_SIZE = GRID_WIDTH / 10;
+        this.generator = generator;
 
         init();
     }
 
     public void init() {
-        grid = new char[ROWS + PITY_ROWS][COLUMNS];
+        // Reused across resets so its version keeps counting up and cached renders of the old stack go stale
+        if (board == null) {
+            board = new Bitboard(ROWS + PITY_ROWS, COLUMNS);
+        } else {
+            board.clear();
+        }
         updateDropRate();
         canHold = true;
 
@@ -68,9 +75,14 @@ public class Grid {
         score = 0;
         level = startingLevel;
         lines = 0;
+        piecesPlaced = 0;
+        gameOver = false;
 
         init();
-        gameOver = false;
+
+        for (GridListener listener : listeners) {
+            listener.gameReset(this);
+        }
     }
 
     public void tick() {
@@ -83,7 +95,7 @@ public class Grid {
             moveTetrominoDown();
             ticksTillDrop = dropRate;
 
-            if (!currentTetromino.canMoveDown(grid)) {
+            if (!currentTetromino.canMoveDown(board)) {
                 ticksTillDrop = 200;
             }
         }
@@ -95,35 +107,57 @@ public class Grid {
         }
     }
 
+    // Same as calling tick() the given number of times, but jumps straight over the ticks where only the
+    // drop and lock countdowns move, so long stretches of gravity cost one step per event
+    public void advance(long ticks) {
+        while (ticks > 0 && !gameOver) {
+            long quiet = Math.min(getTicksUntilEvent() - 1, ticks - 1);
+            if (quiet > 0) {
+                ticksTillDrop -= quiet;
+                if (currentTetromino.getLockTimer() != -1)
+                    currentTetromino.setLockTimer(currentTetromino.getLockTimer() - (int) quiet);
+                ticks -= quiet;
+            }
+            tick();
+            ticks--;
+        }
+    }
+
+    // How many tick() calls until one does more than count down, i.e. drops or locks the current piece
+    public long getTicksUntilEvent() {
+        long untilDrop = ticksTillDrop + 1;
+        int lockTimer = currentTetromino.getLockTimer();
+        return lockTimer == -1 ? untilDrop : Math.min(untilDrop, lockTimer + 1);
+    }
+
     // GRID LOGIC
 
     public void addToGrid(Tetromino tetromino, boolean doublePlaceScore) {
-        Point[] shape = tetromino.getPoints().clone();
-
-        for (Point p : shape) {
-            grid[p.x][p.y] = tetromino.getCharacter();
+        for (int i = 0; i < tetromino.getCellCount(); i++) {
+            int r = tetromino.getCellRow(i);
+            int c = tetromino.getCellColumn(i);
+            board.set(r, c, tetromino.getType());
             score += doublePlaceScore ? 2 : 1;
         }
 
         canHold = true;
-        lineClearCheck();
+        piecesPlaced++;
+        for (GridListener listener : listeners) {
+            listener.pieceLocked(this, tetromino);
+        }
+
+        // Only the rows the piece landed in can have become full
+        lineClearCheck(tetromino.getTopRow(), tetromino.getBottomRow());
         nextTetromino();
     }
 
-    public void lineClearCheck() {
+    public void lineClearCheck(int topRow, int bottomRow) {
         int linesCleared = 0;
         int scoreGained = 0;
-        boolean isFull;
-
-        for (int r = 0; r < PITY_ROWS + ROWS; r++) {
-            isFull = true;
-            for (int c = 0; c < COLUMNS; c++) {
-                if (grid[r][c] == 0) {
-                    isFull = false;
-                    break;
-                }
-            }
-            if (isFull) {
+
+        // Top to bottom, deleting a row only moves the rows above it
+        for (int r = Math.max(topRow, 0); r <= bottomRow && r < PITY_ROWS + ROWS; r++) {
+            if (board.isRowFull(r)) {
                 linesCleared++;
                 deleteRow(r);
             }
@@ -151,6 +185,12 @@ public class Grid {
         level = lines / 10 + startingLevel;
 
         updateDropRate();
+
+        if (linesCleared > 0) {
+            for (GridListener listener : listeners) {
+                listener.linesCleared(this, linesCleared);
+            }
+        }
     }
 
     public void updateDropRate() {
@@ -158,47 +198,21 @@ public class Grid {
     }
 
     private void deleteRow(int rowToDelete) {
-        // Shifts the rows above down
-        Arrays.fill(grid[rowToDelete], '\u0000');
-        for (int r = rowToDelete; r > 0; r--) {
-            grid[r] = Arrays.copyOf(grid[r - 1], COLUMNS);
-        }
+        board.deleteRow(rowToDelete); // Shifts the rows above down
     }
 
     public boolean isGameOver() {
         return gameOver;
     }
 
-    public void drawSideContainers(Graphics g) {
-        g.setColor(Color.DARK_GRAY);
-        g.drawRect((int) (UI_TILE_SIZE * 15.5), (int) (UI_TILE_SIZE * 1.5), UI_TILE_SIZE * 4, UI_TILE_SIZE * 15); // Queue - right side
-        final int holdBoxHeight = 4;
-
-        g.drawRect((int) (UI_TILE_SIZE * .5), (int) (UI_TILE_SIZE * 1.5), UI_TILE_SIZE * 4,
-                UI_TILE_SIZE * holdBoxHeight); // Hold - left side
-    }
-
-    public void drawGridLines(Graphics2D g) {
-        g.setColor(Color.GRAY);
-        // Vertical grid
-        for (int c = 0; c < COLUMNS + 1; c++) {
-            g.drawLine(c * TILE_SIZE + GRID_WIDTH / 2, 0, c * TILE_SIZE + GRID_WIDTH / 2, GRID_HEIGHT);
-        }
-        // Horizontal grid
-        for (int r = 0; r < ROWS + 1; r++) {
-            g.drawLine(GRID_WIDTH / 2, r * TILE_SIZE, COLUMNS * TILE_SIZE + GRID_WIDTH / 2, r * TILE_SIZE);
-        }
-    }
-
     // TETROMINO LOGIC
 
-    public void hold() {
+    public boolean hold() {
         if (!canHold)
-            return;
+            return false;
 
         canHold = false;
-        Tetromino tempTetromino = heldTetromino == null ? null
-                : new Tetromino(heldTetromino.getType(), COLUMNS / 2, PITY_ROWS);
+        Tetromino tempTetromino = heldTetromino == null ? null : getHoldSpawn(heldTetromino.getType());
 
         heldTetromino = new Tetromino(currentTetromino.getType());
         if (tempTetromino == null) {
@@ -206,184 +220,351 @@ public class Grid {
         } else {
             currentTetromino = tempTetromino;
         }
+        return true;
     }
 
-    public void drawLocked(Graphics2D g) {
-        g.setColor(Color.WHITE);
-        for (int r = 0; r < ROWS + PITY_ROWS; r++) {
-            for (int c = 0; c < COLUMNS; c++) {
-                if (grid[r][c] != 0) {
-                    g.setColor(TetrominoType.getColor(grid[r][c]));
-                    g.fillRect(c * TILE_SIZE + GRID_WIDTH / 2, r * TILE_SIZE - TILE_SIZE * PITY_ROWS, TILE_SIZE,
-                            TILE_SIZE);
+    public void nextTetromino() {
+        currentTetromino = queue.pop();
+        queue.add(getNextTetromino());
+
+        int i = 0;
+        while (!currentTetromino.fits(board)) { // If the default spawn location is occupied, move up
+            if (i >= PITY_ROWS) { // If there are no free spots end the game
+                gameOver = true;
+                for (GridListener listener : listeners) {
+                    listener.gameOver(this);
                 }
+                return;
             }
+            currentTetromino.moveUp();
+            i++;
+        }
+
+        for (GridListener listener : listeners) {
+            listener.pieceSpawned(this, currentTetromino);
         }
     }
 
-    public void drawHold(Graphics g) {
-        GraphicsPanel.drawCenteredString(g, "HOLD", Color.WHITE, (int) (100 * SCALE), (int) (4 * SCALE),
-                (int) (30 * SCALE));
+    // Where a piece swapped back in from hold starts, one column right of where queued pieces start
+    public Tetromino getHoldSpawn(TetrominoType type) {
+        return new Tetromino(type, COLUMNS / 2, PITY_ROWS);
+    }
 
-        if (heldTetromino == null)
-            return;
+    public Tetromino getNextTetromino() {
+        return getQueueSpawn(generator.next());
+    }
 
-        g.setColor(heldTetromino.getColor());
-        Point[] tetrominoPoints = heldTetromino.getPoints().clone();
-
-        for (Point p : tetrominoPoints) {
-            int x = UI_TILE_SIZE + p.y * UI_TILE_SIZE;
-            int y = UI_TILE_SIZE * 2 + p.x * UI_TILE_SIZE;
-
-            switch (heldTetromino.getType()) {
-                case O:
-                    x += UI_TILE_SIZE / 2;
-                    y += UI_TILE_SIZE / 2;
-                    break;
-                case I:
-                    x -= UI_TILE_SIZE / 2;
-                    y += UI_TILE_SIZE;
-                    break;
-                default:
-                    y += UI_TILE_SIZE / 2;
-                    break;
-            }
+    // Where a piece from the queue starts, before moving up when that is blocked
+    public Tetromino getQueueSpawn(TetrominoType type) {
+        return new Tetromino(type, COLUMNS / 2 - 1, PITY_ROWS);
+    }
 
-            g.fillRect(x, y, UI_TILE_SIZE, UI_TILE_SIZE);
+    // The moves return whether they changed anything, blocked moves leave the game exactly as it was
+    public boolean moveTetrominoDown() {
+        if (currentTetromino.canMoveDown(board)) {
+            currentTetromino.moveDown();
+            ticksTillDrop = dropRate;
+            return true;
+        } else if (currentTetromino.getLockTimer() == -1) {
+            currentTetromino.setLockTimer(500);
+            return true;
         }
+        return false;
+    }
 
+    public boolean moveTetrominoRight() {
+        if (!currentTetromino.canMoveSide(board, true))
+            return false;
+        currentTetromino.moveSide(true);
+        return true;
     }
 
-    public void drawScore(Graphics g) {
-        g.drawRect((int) (UI_TILE_SIZE * .5),  (UI_TILE_SIZE * 7), UI_TILE_SIZE * 4, UI_TILE_SIZE * 6); // Border
+    public boolean moveTetrominoLeft() {
+        if (!currentTetromino.canMoveSide(board, false))
+            return false;
+        currentTetromino.moveSide(false);
+        return true;
+    }
 
-        // Headers
-        GraphicsPanel.drawCenteredString(g, "SCORE", Color.WHITE, (int) (100 * SCALE),  (UI_TILE_SIZE * 7),
-                (int) (30 * SCALE));
-        GraphicsPanel.drawCenteredString(g, "LEVEL", Color.WHITE, (int) (100 * SCALE),  (UI_TILE_SIZE * 9),
-                (int) (30 * SCALE));
-        GraphicsPanel.drawCenteredString(g, "LINES", Color.WHITE, (int) (100 * SCALE),  (UI_TILE_SIZE * 11),
-                (int) (30 * SCALE));
+    public void dropTetromino() {
+        currentTetromino.drop(board);
+        addToGrid(currentTetromino, true);
+        ticksTillDrop = dropRate;
+    }
 
-        // Labels
-        GraphicsPanel.drawCenteredString(g, score + "", Color.GREEN, (int) (100 * SCALE),  (UI_TILE_SIZE * 8),
-                (int) (30 * SCALE));
-        GraphicsPanel.drawCenteredString(g, level + "", Color.GREEN, (int) (100 * SCALE),  (UI_TILE_SIZE * 10),
-                (int) (30 * SCALE));
-        GraphicsPanel.drawCenteredString(g, lines + "", Color.GREEN, (int) (100 * SCALE),  (UI_TILE_SIZE * 12),
-                (int) (30 * SCALE));
+    public boolean rotate(boolean counterClockwise) {
+        if (!currentTetromino.canRotate(board, counterClockwise))
+            return false;
+        currentTetromino.rotate(counterClockwise);
+        return true;
     }
 
-    public void nextTetromino() {
-        currentTetromino = queue.pop();
-        queue.add(getNextTetromino());
+    // Returns whether the input changed the game, listeners only hear about the ones that did, so a held key
+    // against a wall costs them nothing
+    public boolean apply(Input input) {
+        if (gameOver)
+            return false;
 
-        int i = 0;
-        while (!checkGridEmpty(currentTetromino.getPoints())) { // If the default spawn location is occupied, move up
-            if (i >= PITY_ROWS) { // If there are no free spots end the game
-                gameOver = true;
-                return;
+        boolean applied;
+        switch (input) {
+            case LEFT:
+                applied = moveTetrominoLeft();
+                break;
+            case RIGHT:
+                applied = moveTetrominoRight();
+                break;
+            case SOFT_DROP:
+                applied = moveTetrominoDown();
+                break;
+            case HARD_DROP:
+                dropTetromino();
+                applied = true;
+                break;
+            case ROTATE_CLOCKWISE:
+                applied = rotate(false);
+                break;
+            case ROTATE_COUNTER_CLOCKWISE:
+                applied = rotate(true);
+                break;
+            case HOLD:
+                applied = hold();
+                break;
+            default:
+                applied = false;
+                break;
+        }
+
+        if (applied) {
+            for (GridListener listener : listeners) {
+                listener.inputApplied(this, input);
             }
-            currentTetromino.moveUp();
-            i++;
         }
+        return applied;
     }
 
-    public boolean checkGridEmpty(Point[] points) {
-        for (Point p : points) {
-            if (grid[p.x][p.y] != 0)
-                return false;
+    // Turns the current piece to the placement's rotation, slides it to its column and hard drops it
+    public void place(Placement placement) {
+        for (int i = 0; i < 3 && currentTetromino.getRotation() != placement.getRotation(); i++) {
+            rotate(false);
         }
-        return true;
-    }
 
-    public void drawTempTetromino(Graphics g, Tetromino tetromino) {
-        Point[] shape = tetromino.getPoints();
-        for (Point point : shape) {
-            g.setColor(tetromino.getColor());
-            g.fillRect(point.y * TILE_SIZE + GRID_WIDTH / 2, point.x * TILE_SIZE - PITY_ROWS * TILE_SIZE,
-                    TILE_SIZE, TILE_SIZE);
+        while (currentTetromino.getColumn() < placement.getColumn() && currentTetromino.canMoveSide(board, true)) {
+            currentTetromino.moveSide(true);
         }
+        while (currentTetromino.getColumn() > placement.getColumn() && currentTetromino.canMoveSide(board, false)) {
+            currentTetromino.moveSide(false);
+        }
+
+        dropTetromino();
     }
 
-    public void drawQueueTetrominos(Graphics g) {
-        for (int i = 0; i < queue.size(); i++) {
-            Tetromino tetromino = new Tetromino(queue.get(i).getType());
-            Point[] points = tetromino.getPoints();
-            g.setColor(tetromino.getColor());
-
-            for (Point p : points) {
-                int x = p.y * UI_TILE_SIZE + GRID_WIDTH / 2 + UI_TILE_SIZE * 11;
-                int y = p.x * UI_TILE_SIZE + UI_TILE_SIZE * i * 5 + UI_TILE_SIZE * 2;
-
-                switch (tetromino.getType()) {
-                    case O:
-                        x += UI_TILE_SIZE / 2;
-                        break;
-                    case I:
-                        x -= UI_TILE_SIZE / 2;
-                        break;
-                    default:
-                        break;
-                }
-                g.fillRect(x, y, UI_TILE_SIZE, UI_TILE_SIZE);
-            }
+    // CHECKPOINTS
+
+    public GridCheckpoint checkpoint() {
+        return new GridCheckpoint(this);
+    }
+
+    // Puts the game back to a checkpoint of a game with the same size, starting level and kind of generator
+    // Listeners stay attached but are not told, like readSnapshot
+    public void restore(GridCheckpoint checkpoint) {
+        if (checkpoint.getRows() != ROWS)
+            throw new IllegalArgumentException("Checkpoint of a " + checkpoint.getRows() + " row game does not fit this "
+                    + ROWS + " row game");
+        if (checkpoint.getStartingLevel() != startingLevel)
+            throw new IllegalArgumentException("Checkpoint of a game started at level " + checkpoint.getStartingLevel()
+                    + " does not fit this game started at level " + startingLevel);
+        if (checkpoint.getGeneratorKind() != generator.getKind())
+            throw new IllegalArgumentException("Checkpoint of a game with generator kind "
+                    + checkpoint.getGeneratorKind() + " does not fit this game's kind " + generator.getKind());
+
+        gameOver = checkpoint.isGameOver();
+        canHold = checkpoint.canHold();
+        score = checkpoint.getScore();
+        level = checkpoint.getLevel();
+        lines = checkpoint.getLines();
+        piecesPlaced = checkpoint.getPiecesPlaced();
+        ticksTillDrop = checkpoint.getTicksTillDrop();
+        updateDropRate();
+
+        currentTetromino = checkpoint.getCurrentTetromino();
+        heldTetromino = checkpoint.getHeldTetromino();
+        queue.clear();
+        for (int i = 0; i < checkpoint.getQueueSize(); i++) {
+            queue.add(checkpoint.getQueued(i));
         }
 
-        GraphicsPanel.drawCenteredString(g, "NEXT", Color.WHITE, (int) (700 * SCALE), (int) (4 * SCALE),
-                (int) (30 * SCALE));
+        generator.readState(checkpoint.getGeneratorState());
+        board.restore(checkpoint.getBoard());
     }
 
-    public Tetromino getNextTetromino() {
-        return new Tetromino((int) (Math.random() * TetrominoType.values().length), COLUMNS / 2 - 1, PITY_ROWS);
+    // SNAPSHOTS
+
+    // Fixed header, every field sits at the same offset, followed by the board, whose size follows its stack:
+    // version, generator kind, seed, rows, starting level, game over and can hold flags, score, level, lines,
+    // pieces placed, ticks till drop, the current piece, a held flag and piece, the queue, the generator state
+    // padded to PieceGenerator.STATE_SIZE, then the board. The drop rate follows from the level
+    // Always little endian whatever order the buffer is set to, so the board's masks copy without swapping
+    public static final int SNAPSHOT_VERSION = 2; // 2 stores only the board's non-empty rows
+    private static final int QUEUE_SIZE = 3;
+    private static final int SNAPSHOT_HEADER_SIZE = 2 + 8 + 4 + 4 + 2 + 5 * 4 + Tetromino.SNAPSHOT_SIZE
+            + 1 + Tetromino.SNAPSHOT_SIZE + QUEUE_SIZE * Tetromino.SNAPSHOT_SIZE + PieceGenerator.STATE_SIZE;
+
+    public int getSnapshotSize() {
+        return SNAPSHOT_HEADER_SIZE + board.getSnapshotSize();
     }
 
-    public void moveTetrominoDown() {
-        if (currentTetromino.canMoveDown(grid)) {
-            currentTetromino.moveDown();
-            ticksTillDrop = dropRate;
-        } else if (currentTetromino.getLockTimer() == -1) {
-            currentTetromino.setLockTimer(500);
+    public void writeSnapshot(ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            putSnapshot(buffer);
+        } finally {
+            buffer.order(order);
         }
     }
 
-    public void moveTetrominoRight() {
-        if (currentTetromino.canMoveSide(grid, true)) {
-            currentTetromino.moveSide(true);
+    private void putSnapshot(ByteBuffer buffer) {
+        buffer.put((byte) SNAPSHOT_VERSION);
+        buffer.put((byte) generator.getKind());
+        buffer.putLong(generator.getSeed());
+        buffer.putInt(ROWS);
+        buffer.putInt(startingLevel);
+        buffer.put((byte) (gameOver ? 1 : 0));
+        buffer.put((byte) (canHold ? 1 : 0));
+        buffer.putInt(score);
+        buffer.putInt(level);
+        buffer.putInt(lines);
+        buffer.putInt(piecesPlaced);
+        buffer.putInt(ticksTillDrop);
+
+        currentTetromino.writeTo(buffer);
+        buffer.put((byte) (heldTetromino == null ? 0 : 1));
+        if (heldTetromino == null) {
+            skip(buffer, Tetromino.SNAPSHOT_SIZE);
+        } else {
+            heldTetromino.writeTo(buffer);
         }
+        for (Tetromino tetromino : queue) {
+            tetromino.writeTo(buffer);
+        }
+
+        int start = buffer.position();
+        generator.writeState(buffer);
+        buffer.position(start + PieceGenerator.STATE_SIZE);
+
+        board.writeTo(buffer);
     }
 
-    public void moveTetrominoLeft() {
-        if (currentTetromino.canMoveSide(grid, false)) {
-            currentTetromino.moveSide(false);
+    // Restores a snapshot of a game with the same size, starting level and kind of generator. Listeners stay
+    // attached but are not told, the restored state did not come from playing
+    public void readSnapshot(ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            getSnapshot(buffer);
+        } finally {
+            buffer.order(order);
         }
     }
 
-    public void dropTetromino() {
-        currentTetromino.drop(grid);
-        addToGrid(currentTetromino, true);
-        ticksTillDrop = dropRate;
+    private void getSnapshot(ByteBuffer buffer) {
+        checkSnapshotVersion(buffer);
+        int kind = buffer.get() & 0xFF;
+        buffer.getLong(); // The seed stays this generator's own, only its state is restored
+        int rows = buffer.getInt();
+        int snapshotStartingLevel = buffer.getInt();
+        if (rows != ROWS)
+            throw new IllegalArgumentException("Snapshot of a " + rows + " row game does not fit this " + ROWS
+                    + " row game");
+        if (snapshotStartingLevel != startingLevel)
+            throw new IllegalArgumentException("Snapshot of a game started at level " + snapshotStartingLevel
+                    + " does not fit this game started at level " + startingLevel);
+        if (kind != generator.getKind())
+            throw new IllegalArgumentException("Snapshot of a game with generator kind " + kind
+                    + " does not fit this game's kind " + generator.getKind());
+
+        gameOver = buffer.get() != 0;
+        canHold = buffer.get() != 0;
+        score = buffer.getInt();
+        level = buffer.getInt();
+        lines = buffer.getInt();
+        piecesPlaced = buffer.getInt();
+        ticksTillDrop = buffer.getInt();
+        updateDropRate();
+
+        currentTetromino = Tetromino.readFrom(buffer);
+        if (buffer.get() == 0) {
+            heldTetromino = null;
+            skip(buffer, Tetromino.SNAPSHOT_SIZE);
+        } else {
+            heldTetromino = Tetromino.readFrom(buffer);
+        }
+        queue.clear();
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            queue.add(Tetromino.readFrom(buffer));
+        }
+
+        int start = buffer.position();
+        generator.readState(buffer);
+        buffer.position(start + PieceGenerator.STATE_SIZE);
+
+        board.readFrom(buffer);
     }
 
-    public void rotate(boolean counterClockwise) {
-        if (currentTetromino.canRotate(grid, counterClockwise))
-            currentTetromino.rotate(counterClockwise);
+    // A new Grid in the snapshot's state, with a generator rebuilt from the snapshot's seed
+    public static Grid fromSnapshot(ByteBuffer buffer) {
+        ByteBuffer header = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        checkSnapshotVersion(header);
+        int kind = header.get() & 0xFF;
+        long seed = header.getLong();
+        int rows = header.getInt();
+        int startingLevel = header.getInt();
+
+        Grid grid = new Grid(rows, startingLevel, PieceGenerator.create(kind, seed));
+        grid.readSnapshot(buffer);
+        return grid;
     }
 
-    public Tetromino getGhostTetromino() {
-        Tetromino ghostTetromino = currentTetromino.getCopy();
+    private static void checkSnapshotVersion(ByteBuffer buffer) {
+        int version = buffer.get();
+        if (version != SNAPSHOT_VERSION)
+            throw new IllegalStateException("Unsupported snapshot version " + version);
+    }
 
-        int R = ghostTetromino.getColor().getRed() + 200;
-        int G = ghostTetromino.getColor().getGreen() + 200;
-        int B = ghostTetromino.getColor().getBlue() + 200;
-        ghostTetromino.setColor(new Color(Math.min(R, 255), Math.min(G, 255), Math.min(B, 255)));
+    private static void skip(ByteBuffer buffer, int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
 
-        while (ghostTetromino.canMoveDown(grid)) {
-            ghostTetromino.moveDown();
-        }
+    public void addListener(GridListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GridListener listener) {
+        listeners.remove(listener);
+    }
+
+    public int getGhostDistance() {
+        return board.dropDistance(currentTetromino.getType(), currentTetromino.getRotation(),
+                currentTetromino.getRow(), currentTetromino.getColumn());
+    }
+
+    public Tetromino getGhostTetromino() {
+        Tetromino ghostTetromino = currentTetromino.getCopy();
+        ghostTetromino.drop(board);
         return ghostTetromino;
     }
 
+    // Zobrist hash of the board, the piece in play and the hold slot. The board part is kept up to date by the
+    // Bitboard as cells are set and rows deleted, the piece part is a couple of mixes so it is folded in here
+    // instead of being tracked through every move
+    public long getHash() {
+        long hash = board.getHash() ^ Zobrist.held(heldTetromino == null ? null : heldTetromino.getType(), canHold);
+        if (currentTetromino != null)
+            hash ^= Zobrist.piece(currentTetromino.getType(), currentTetromino.getRotation(),
+                    currentTetromino.getRow(), currentTetromino.getColumn());
+        return hash;
+    }
+
     public Tetromino getCurrentTetromino() {
         return currentTetromino;
     }
@@ -408,39 +589,59 @@ public class Grid {
         this.currentTetromino = currentTetromino;
     }
 
-    public int getTileSize() {
-        return TILE_SIZE;
+    public int getColumns() {
+        return COLUMNS;
+    }
+
+    public int getRows() {
+        return ROWS;
     }
 
-    public int getGridWidth() {
-        return GRID_WIDTH;
+    public Bitboard getBoard() {
+        return board;
     }
 
-    public int getGridHeight() {
-        return GRID_HEIGHT;
+    public int getScore() {
+        return score;
     }
 
-    public int getColumns() {
-        return COLUMNS;
+    public int getLevel() {
+        return level;
     }
 
-    public int getRows() {
-        return ROWS;
+    public int getStartingLevel() {
+        return startingLevel;
     }
 
-    public char[][] getGrid() {
-        return grid;
+    public int getLines() {
+        return lines;
     }
 
-    public double getScale() {
-        return SCALE;
+    public PieceGenerator getGenerator() {
+        return generator;
     }
 
-    public int getScore() {
-        return score;
+    public boolean canHold() {
+        return canHold;
+    }
+
+    public int getTicksTillDrop() {
+        return ticksTillDrop;
+    }
+
+    public int getPiecesPlaced() {
+        return piecesPlaced;
+    }
+
+    public int getPityRows() {
+        return PITY_ROWS;
+    }
+
+    public Tetromino getHeldTetromino() {
+        return heldTetromino;
     }
 
-    public int getUITileSize() {
-        return UI_TILE_SIZE;
+    public List<Tetromino> getQueue() {
+        return queue;
     }
 }
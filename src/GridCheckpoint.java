@@ -0,0 +1,112 @@
+import java.nio.ByteBuffer;
+
+// A Grid's full state at one moment, kept in memory for rewinding and branching. Restoring one never changes
+// it, so a tool can go back to the same point any number of times. The board is shared row by row with the
+// live game and other checkpoints, see Bitboard.checkpoint
+public class GridCheckpoint {
+    private final int rows;
+    private final int startingLevel; // The level follows from it and the lines, so it has to match on restore
+    private final boolean gameOver;
+    private final boolean canHold;
+    private final int score;
+    private final int level;
+    private final int lines;
+    private final int piecesPlaced;
+    private final int ticksTillDrop;
+
+    private final Tetromino currentTetromino;
+    private final Tetromino heldTetromino;
+    private final Tetromino[] queue;
+
+    private final int generatorKind;
+    private final byte[] generatorState = new byte[PieceGenerator.STATE_SIZE];
+    private final BoardCheckpoint board;
+
+    GridCheckpoint(Grid grid) {
+        this.rows = grid.getRows();
+        this.startingLevel = grid.getStartingLevel();
+        this.gameOver = grid.isGameOver();
+        this.canHold = grid.canHold();
+        this.score = grid.getScore();
+        this.level = grid.getLevel();
+        this.lines = grid.getLines();
+        this.piecesPlaced = grid.getPiecesPlaced();
+        this.ticksTillDrop = grid.getTicksTillDrop();
+
+        this.currentTetromino = grid.getCurrentTetromino().getExactCopy();
+        this.heldTetromino = grid.getHeldTetromino() == null ? null : grid.getHeldTetromino().getExactCopy();
+        this.queue = new Tetromino[grid.getQueue().size()];
+        for (int i = 0; i < queue.length; i++) {
+            queue[i] = grid.getQueue().get(i).getExactCopy();
+        }
+
+        this.generatorKind = grid.getGenerator().getKind();
+        grid.getGenerator().writeState(ByteBuffer.wrap(generatorState));
+        this.board = grid.getBoard().checkpoint();
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getStartingLevel() {
+        return startingLevel;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public boolean canHold() {
+        return canHold;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    public int getPiecesPlaced() {
+        return piecesPlaced;
+    }
+
+    public int getTicksTillDrop() {
+        return ticksTillDrop;
+    }
+
+    // Pieces come back as copies, the live game moves its pieces in place
+    public Tetromino getCurrentTetromino() {
+        return currentTetromino.getExactCopy();
+    }
+
+    public Tetromino getHeldTetromino() {
+        return heldTetromino == null ? null : heldTetromino.getExactCopy();
+    }
+
+    public int getQueueSize() {
+        return queue.length;
+    }
+
+    public Tetromino getQueued(int index) {
+        return queue[index].getExactCopy();
+    }
+
+    public int getGeneratorKind() {
+        return generatorKind;
+    }
+
+    public ByteBuffer getGeneratorState() {
+        return ByteBuffer.wrap(generatorState).asReadOnlyBuffer();
+    }
+
+    public BoardCheckpoint getBoard() {
+        return board;
+    }
+}
@@ -0,0 +1,22 @@
+// Observer for game events, lets renderers and tools follow a Grid without the rules knowing about them
+public interface GridListener {
+    default void pieceLocked(Grid grid, Tetromino tetromino) {
+    }
+
+    default void linesCleared(Grid grid, int linesCleared) {
+    }
+
+    // A new piece came out of the queue and fits, the game is between placements
+    default void pieceSpawned(Grid grid, Tetromino tetromino) {
+    }
+
+    default void gameOver(Grid grid) {
+    }
+
+    default void gameReset(Grid grid) {
+    }
+
+    // Only inputs that changed the game, blocked moves and holds are not reported
+    default void inputApplied(Grid grid, Input input) {
+    }
+}
@@ -0,0 +1,370 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+public class GridRenderer {
+    private final double SCALE;
+    private final int TILE_SIZE;
+    private final int UI_TILE_SIZE;
+    private final int GRID_WIDTH;
+    private final int GRID_HEIGHT;
+
+    // Tiles never shrink below MIN_TILE_SIZE, the smallest that still has room for its grid line. A board with
+    // more tiles than fit is drawn through a viewport of VIEW_ROWS by VIEW_COLUMNS tiles that follows the
+    // current piece, see RenderSnapshot, so a frame only ever touches the tiles on screen
+    private static final int MIN_TILE_SIZE = 2;
+    private final int VIEW_ROWS;
+    private final int VIEW_COLUMNS;
+    private int viewTop;
+    private int viewLeft;
+
+    // Grid lines, containers and headers never change for a given scale, the board layer is that plus the
+    // locked cells and is only painted again when the board version moves, i.e. a piece locked or lines cleared
+    private final CachedLayer staticLayer;
+    private final CachedLayer boardLayer;
+    private final Consumer<Graphics2D> staticPainter = this::drawStatic;
+    private final Consumer<Graphics2D> boardPainter = this::drawBoard;
+    private RenderSnapshot boardSnapshot;
+    private long boardVersion = -1;
+
+    // The board area is written straight into this image's pixels and blitted in one opaque copy. Empty cells
+    // get the grid lines baked in, so the image covers the static layer's lines exactly where they would be
+    private final BufferedImage lockedImage;
+    private final int[] lockedPixels;
+
+    // Score, level and lines with their box and headers, only painted again when one of the values changes
+    private final CachedLayer hudLayer;
+    private final Consumer<Graphics2D> hudPainter = this::drawHud;
+    private final int HUD_TOP;
+    private int hudScore = -1;
+    private int hudLevel = -1;
+    private int hudLines = -1;
+
+    // Fonts are derived once per renderer, deriving on every string showed up in every frame
+    private final Font labelFont;
+    private final Font messageFont;
+    private final DigitAtlas hudDigits;
+
+    private static Font mainFont;
+    private static final Color GAME_END_SHADE = new Color(0, 0, 0, 150);
+
+    // Indexed by TetrominoType ordinal
+    private static final Color[] COLORS = new Color[] { new Color(0, 240, 240), new Color(0, 0, 240),
+            new Color(240, 160, 0), new Color(240, 240, 0), new Color(0, 240, 0), new Color(160, 0, 240),
+            new Color(240, 0, 0) };
+    private static final Color[] GHOST_COLORS = new Color[COLORS.length];
+    // Indexed by Bitboard cell code, the empty cell is grid line on the tile's edges and background inside
+    private static final int[] EDGE_RGB = new int[COLORS.length + 1];
+    private static final int[] FILL_RGB = new int[COLORS.length + 1];
+
+    static {
+        for (int i = 0; i < COLORS.length; i++) {
+            int R = COLORS[i].getRed() + 200;
+            int G = COLORS[i].getGreen() + 200;
+            int B = COLORS[i].getBlue() + 200;
+            GHOST_COLORS[i] = new Color(Math.min(R, 255), Math.min(G, 255), Math.min(B, 255));
+            EDGE_RGB[Bitboard.toCell(TetrominoType.values()[i])] = COLORS[i].getRGB();
+            FILL_RGB[Bitboard.toCell(TetrominoType.values()[i])] = COLORS[i].getRGB();
+        }
+        EDGE_RGB[Bitboard.EMPTY] = Color.GRAY.getRGB();
+        FILL_RGB[Bitboard.EMPTY] = Color.BLACK.getRGB();
+
+        try {
+            // Load font as a resource stream
+            InputStream fontStream = GridRenderer.class.getResourceAsStream("/resources/fonts/ChakraPetch-Medium.ttf");
+            mainFont = Font.createFont(Font.TRUETYPE_FONT, fontStream);
+            GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
+            ge.registerFont(mainFont);
+        } catch (IOException | FontFormatException e) {
+            System.err.println("Main font not loaded");
+        }
+    }
+
+    // Draws RenderSnapshots, never the live Grid, so it can run on a different thread than the game
+    GridRenderer(int rows, int columns, double scale) {
+        this.SCALE = scale;
+
+        this.GRID_WIDTH = (int) (400 * scale);
+        this.GRID_HEIGHT = GRID_WIDTH * 2;
+        this.TILE_SIZE = Math.max(GRID_WIDTH / columns, MIN_TILE_SIZE);
+        this.VIEW_ROWS = Math.min(rows, GRID_HEIGHT / TILE_SIZE);
+        this.VIEW_COLUMNS = Math.min(columns, GRID_WIDTH / TILE_SIZE);
+        this.UI_TILE_SIZE = GRID_WIDTH / 10;
+
+        this.staticLayer = new CachedLayer(GRID_WIDTH * 2 + 1, GRID_HEIGHT + 1);
+        this.boardLayer = new CachedLayer(GRID_WIDTH * 2 + 1, GRID_HEIGHT + 1);
+        this.HUD_TOP = UI_TILE_SIZE * 7;
+        this.hudLayer = new CachedLayer(GRID_WIDTH / 2, UI_TILE_SIZE * 6 + 1);
+
+        this.labelFont = mainFont.deriveFont(Font.PLAIN, (int) (30 * scale));
+        this.messageFont = mainFont.deriveFont(Font.PLAIN, UI_TILE_SIZE);
+        this.hudDigits = new DigitAtlas(labelFont, Color.GREEN);
+
+        if (VIEW_ROWS > 0 && VIEW_COLUMNS > 0) {
+            this.lockedImage = new BufferedImage(VIEW_COLUMNS * TILE_SIZE, VIEW_ROWS * TILE_SIZE,
+                    BufferedImage.TYPE_INT_RGB);
+            this.lockedPixels = ((DataBufferInt) lockedImage.getRaster().getDataBuffer()).getData();
+        } else { // Scaled down to less than a tile, nothing to draw
+            this.lockedImage = null;
+            this.lockedPixels = null;
+        }
+    }
+
+    public static Color getColor(TetrominoType type) {
+        return COLORS[type.ordinal()];
+    }
+
+    public void draw(Graphics2D g, RenderSnapshot snapshot) {
+        // Drawing main tetris grid and its components
+        if (snapshot.getBoardVersion() != boardVersion || snapshot.getViewTop() != viewTop
+                || snapshot.getViewLeft() != viewLeft) {
+            boardLayer.invalidate();
+            boardVersion = snapshot.getBoardVersion();
+            viewTop = snapshot.getViewTop();
+            viewLeft = snapshot.getViewLeft();
+        }
+        boardSnapshot = snapshot;
+        boardLayer.draw(g, 0, 0, boardPainter);
+        boardSnapshot = null;
+        drawScore(g, snapshot);
+
+        if (!snapshot.isGameOver()) {
+            TetrominoType type = snapshot.getCurrentType();
+            // Ghost is the current piece moved down by its drop distance
+            drawTempTetromino(g, snapshot, snapshot.getGhostDistance(), GHOST_COLORS[type.ordinal()]);
+            drawTempTetromino(g, snapshot, 0, getColor(type));
+            drawQueueTetrominos(g, snapshot);
+            drawHold(g, snapshot);
+        }
+    }
+
+    private void drawStatic(Graphics2D g) {
+        drawGridLines(g);
+        drawSideContainers(g);
+        drawHeaders(g);
+    }
+
+    private void drawBoard(Graphics2D g) {
+        staticLayer.draw(g, 0, 0, staticPainter);
+        drawLocked(g, boardSnapshot);
+    }
+
+    public void drawSideContainers(Graphics g) {
+        g.setColor(Color.DARK_GRAY);
+        g.drawRect((int) (UI_TILE_SIZE * 15.5), (int) (UI_TILE_SIZE * 1.5), UI_TILE_SIZE * 4, UI_TILE_SIZE * 15); // Queue - right side
+        final int holdBoxHeight = 4;
+
+        g.drawRect((int) (UI_TILE_SIZE * .5), (int) (UI_TILE_SIZE * 1.5), UI_TILE_SIZE * 4,
+                UI_TILE_SIZE * holdBoxHeight); // Hold - left side
+    }
+
+    public void drawHeaders(Graphics g) {
+        drawCenteredString(g, "HOLD", Color.WHITE, (int) (100 * SCALE), (int) (4 * SCALE), labelFont);
+        drawCenteredString(g, "NEXT", Color.WHITE, (int) (700 * SCALE), (int) (4 * SCALE), labelFont);
+    }
+
+    public void drawGridLines(Graphics2D g) {
+        g.setColor(Color.GRAY);
+        // Vertical grid
+        for (int c = 0; c < VIEW_COLUMNS + 1; c++) {
+            g.drawLine(c * TILE_SIZE + GRID_WIDTH / 2, 0, c * TILE_SIZE + GRID_WIDTH / 2, GRID_HEIGHT);
+        }
+        // Horizontal grid
+        for (int r = 0; r < VIEW_ROWS + 1; r++) {
+            g.drawLine(GRID_WIDTH / 2, r * TILE_SIZE, VIEW_COLUMNS * TILE_SIZE + GRID_WIDTH / 2, r * TILE_SIZE);
+        }
+    }
+
+    public void drawLocked(Graphics2D g, RenderSnapshot snapshot) {
+        if (lockedImage == null)
+            return;
+
+        // The snapshot only holds the viewport's cells, pity rows and anything scrolled off are not in it
+        int width = VIEW_COLUMNS * TILE_SIZE;
+        for (int r = 0; r < VIEW_ROWS; r++) {
+            byte[] cells = snapshot.getCellRow(r);
+            int offset = r * TILE_SIZE * width;
+
+            // Top pixel line of the row, the horizontal grid line wherever a cell is empty
+            for (int c = 0, x = offset; c < VIEW_COLUMNS; c++, x += TILE_SIZE) {
+                int rgb = EDGE_RGB[cells[c]];
+                for (int i = 0; i < TILE_SIZE; i++) {
+                    lockedPixels[x + i] = rgb;
+                }
+            }
+
+            // Second pixel line, the vertical grid line on the left edge of empty cells, copied down the tile
+            int line = offset + width;
+            for (int c = 0, x = line; c < VIEW_COLUMNS; c++, x += TILE_SIZE) {
+                lockedPixels[x] = EDGE_RGB[cells[c]];
+                int rgb = FILL_RGB[cells[c]];
+                for (int i = 1; i < TILE_SIZE; i++) {
+                    lockedPixels[x + i] = rgb;
+                }
+            }
+            for (int y = 2; y < TILE_SIZE; y++) {
+                System.arraycopy(lockedPixels, line, lockedPixels, offset + y * width, width);
+            }
+        }
+        g.drawImage(lockedImage, GRID_WIDTH / 2, 0, null);
+    }
+
+    public void drawHold(Graphics g, RenderSnapshot snapshot) {
+        TetrominoType heldType = snapshot.getHeldType();
+        if (heldType == null)
+            return;
+
+        g.setColor(getColor(heldType));
+
+        int[][] shape = heldType.getShape();
+        for (int[] cell : shape) {
+            int x = UI_TILE_SIZE + cell[1] * UI_TILE_SIZE;
+            int y = UI_TILE_SIZE * 2 + cell[0] * UI_TILE_SIZE;
+
+            switch (heldType) {
+                case O:
+                    x += UI_TILE_SIZE / 2;
+                    y += UI_TILE_SIZE / 2;
+                    break;
+                case I:
+                    x -= UI_TILE_SIZE / 2;
+                    y += UI_TILE_SIZE;
+                    break;
+                default:
+                    y += UI_TILE_SIZE / 2;
+                    break;
+            }
+
+            g.fillRect(x, y, UI_TILE_SIZE, UI_TILE_SIZE);
+        }
+
+    }
+
+    public void drawScore(Graphics2D g, RenderSnapshot snapshot) {
+        if (snapshot.getScore() != hudScore || snapshot.getLevel() != hudLevel || snapshot.getLines() != hudLines) {
+            hudScore = snapshot.getScore();
+            hudLevel = snapshot.getLevel();
+            hudLines = snapshot.getLines();
+            hudLayer.invalidate();
+        }
+        hudLayer.draw(g, 0, HUD_TOP, hudPainter);
+    }
+
+    private void drawHud(Graphics2D g) {
+        g.translate(0, -HUD_TOP); // Same coordinates as the rest of the frame
+        g.setColor(Color.DARK_GRAY);
+        g.drawRect((int) (UI_TILE_SIZE * .5),  (UI_TILE_SIZE * 7), UI_TILE_SIZE * 4, UI_TILE_SIZE * 6); // Border
+
+        // Headers
+        drawCenteredString(g, "SCORE", Color.WHITE, (int) (100 * SCALE),  (UI_TILE_SIZE * 7), labelFont);
+        drawCenteredString(g, "LEVEL", Color.WHITE, (int) (100 * SCALE),  (UI_TILE_SIZE * 9), labelFont);
+        drawCenteredString(g, "LINES", Color.WHITE, (int) (100 * SCALE),  (UI_TILE_SIZE * 11), labelFont);
+
+        // Values, baselines sit one font size below the top of their line like drawCenteredString
+        int baseline = labelFont.getSize();
+        hudDigits.drawCentered(g, hudScore, (int) (100 * SCALE), UI_TILE_SIZE * 8 + baseline);
+        hudDigits.drawCentered(g, hudLevel, (int) (100 * SCALE), UI_TILE_SIZE * 10 + baseline);
+        hudDigits.drawCentered(g, hudLines, (int) (100 * SCALE), UI_TILE_SIZE * 12 + baseline);
+    }
+
+    public static Color getGhostColor(TetrominoType type) {
+        return GHOST_COLORS[type.ordinal()];
+    }
+
+    public void drawTempTetromino(Graphics g, RenderSnapshot snapshot, int rowOffset, Color color) {
+        int rotation = snapshot.getCurrentRotation();
+        int[] rowOffsets = snapshot.getCurrentType().getRowOffsets(rotation);
+        int[] columnOffsets = snapshot.getCurrentType().getColumnOffsets(rotation);
+        // Relative to the viewport, cells outside it are left out rather than drawn over the side panels
+        int row = snapshot.getCurrentRow() + rowOffset - snapshot.getPityRows() - snapshot.getViewTop();
+        int column = snapshot.getCurrentColumn() - snapshot.getViewLeft();
+
+        g.setColor(color);
+        for (int i = 0; i < rowOffsets.length; i++) {
+            int r = row + rowOffsets[i];
+            int c = column + columnOffsets[i];
+            if (r < 0 || r >= VIEW_ROWS || c < 0 || c >= VIEW_COLUMNS)
+                continue;
+            g.fillRect(c * TILE_SIZE + GRID_WIDTH / 2, r * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+        }
+    }
+
+    public void drawQueueTetrominos(Graphics g, RenderSnapshot snapshot) {
+        TetrominoType[] queue = snapshot.getQueue();
+        for (int i = 0; i < queue.length; i++) {
+            g.setColor(getColor(queue[i]));
+
+            for (int[] cell : queue[i].getShape()) {
+                int x = cell[1] * UI_TILE_SIZE + GRID_WIDTH / 2 + UI_TILE_SIZE * 11;
+                int y = cell[0] * UI_TILE_SIZE + UI_TILE_SIZE * i * 5 + UI_TILE_SIZE * 2;
+
+                switch (queue[i]) {
+                    case O:
+                        x += UI_TILE_SIZE / 2;
+                        break;
+                    case I:
+                        x -= UI_TILE_SIZE / 2;
+                        break;
+                    default:
+                        break;
+                }
+                g.fillRect(x, y, UI_TILE_SIZE, UI_TILE_SIZE);
+            }
+        }
+    }
+
+    public void drawGameEnd(Graphics g) {
+        g.setColor(GAME_END_SHADE);
+        g.fillRect(GRID_WIDTH / 2, 0, GRID_WIDTH + 1, GRID_HEIGHT + 1);
+        drawCenteredString(g, "You lose!", Color.WHITE, GRID_WIDTH, (int) (50 * SCALE), messageFont);
+        drawCenteredString(g, "Press R to play again", Color.WHITE, GRID_WIDTH, (int) (50 * SCALE) * 2, messageFont);
+    }
+
+    public static void drawCenteredString(Graphics g, String text, Color color, int x, int y, Font font) {
+        g.setColor(color);
+        g.setFont(font);
+        int textWidth = g.getFontMetrics().stringWidth(text);
+        int xPos = x - textWidth / 2;
+        g.drawString(text, xPos, y + font.getSize());
+    }
+
+    public int getTileSize() {
+        return TILE_SIZE;
+    }
+
+    public int getViewRows() {
+        return VIEW_ROWS;
+    }
+
+    public int getViewColumns() {
+        return VIEW_COLUMNS;
+    }
+
+    public int getGridWidth() {
+        return GRID_WIDTH;
+    }
+
+    public int getGridHeight() {
+        return GRID_HEIGHT;
+    }
+
+    public double getScale() {
+        return SCALE;
+    }
+
+    public int getUITileSize() {
+        return UI_TILE_SIZE;
+    }
+
+    public static Font getMainFont() {
+        return mainFont;
+    }
+}
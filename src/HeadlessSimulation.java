@@ -0,0 +1,56 @@
+// Runs a Grid against tick stamped inputs with no real time involved, for bots, replays and tests
+// An input stamped with tick t is applied after t ticks have run, like the real-time Simulation applies inputs
+// that arrived before a tick ahead of it. Event mode jumps the clock from one event to the next with
+// Grid.advance and plays exactly the same game as stepping every tick
+public class HeadlessSimulation {
+    private final Grid grid;
+    private final boolean eventDriven;
+    private long tick; // Ticks run so far
+
+    HeadlessSimulation(Grid grid) {
+        this(grid, true);
+    }
+
+    HeadlessSimulation(Grid grid, boolean eventDriven) {
+        this.grid = grid;
+        this.eventDriven = eventDriven;
+    }
+
+    public void apply(long atTick, Input input) {
+        runUntil(atTick);
+        grid.apply(input);
+    }
+
+    public void runUntil(long targetTick) {
+        if (targetTick <= tick)
+            return;
+
+        if (eventDriven) {
+            grid.advance(targetTick - tick);
+        } else {
+            for (long t = tick; t < targetTick; t++) {
+                grid.tick();
+            }
+        }
+        tick = targetTick;
+    }
+
+    // Lets gravity play until the game ends or the tick limit is reached
+    public void runUntilGameOver(long maxTick) {
+        while (!grid.isGameOver() && tick < maxTick) {
+            runUntil(eventDriven ? Math.min(tick + grid.getTicksUntilEvent(), maxTick) : tick + 1);
+        }
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
+}
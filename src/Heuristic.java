@@ -0,0 +1,90 @@
+import java.util.Arrays;
+
+// Scores a board by a weighted sum of features, higher is better. Heights, holes and the rest are read from
+// the per column stats the Bitboard keeps, so an evaluation is one pass over the columns
+public class Heuristic {
+    public static final int AGGREGATE_HEIGHT = 0; // Sum of column heights
+    public static final int HOLES = 1; // Empty cells below the top of their column
+    public static final int BUMPINESS = 2; // Sum of height differences between neighbouring columns
+    public static final int WELLS = 3; // Sum of how far each column sits below both neighbours, walls count as full
+    public static final int LINES = 4; // Lines cleared on the way to the board
+    public static final int FEATURES = 5;
+
+    // Weights from the well known four feature player by Yiyuan Lee, with a small penalty for wells on top
+    public static final Heuristic DEFAULT = new Heuristic(-0.510066, -0.35663, -0.184483, -0.05, 0.760666);
+
+    // The Vector API evaluator when it was compiled in from vector/ and jdk.incubator.vector is there at runtime
+    // (--add-modules), scalar otherwise. src/ never refers to it directly, so it builds without the module
+    private static final BatchEvaluator BATCH_EVALUATOR = createBatchEvaluator();
+
+    private final double[] weights;
+
+    Heuristic(double... weights) {
+        if (weights.length != FEATURES)
+            throw new IllegalArgumentException("Expected " + FEATURES + " weights, got " + weights.length);
+        this.weights = weights.clone();
+    }
+
+    public double evaluate(Bitboard board, int linesCleared) {
+        int columns = board.getColumns();
+        int aggregateHeight = 0;
+        int holes = 0;
+        int bumpiness = 0;
+        int wells = 0;
+
+        int left = board.getHeight(); // The wall
+        int height = board.getColumnHeight(0);
+        for (int c = 0; c < columns; c++) {
+            int right = c + 1 < columns ? board.getColumnHeight(c + 1) : board.getHeight();
+            aggregateHeight += height;
+            holes += board.getHoles(c);
+            if (c + 1 < columns)
+                bumpiness += Math.abs(height - right);
+            int well = Math.min(left, right) - height;
+            if (well > 0)
+                wells += well;
+            left = height;
+            height = right;
+        }
+
+        return weights[AGGREGATE_HEIGHT] * aggregateHeight + weights[HOLES] * holes
+                + weights[BUMPINESS] * bumpiness + weights[WELLS] * wells + weights[LINES] * linesCleared;
+    }
+
+    // Scores every board in the batch as evaluate(board, 0) would, into scores[0 .. batch.size())
+    public void evaluate(BoardBatch batch, double[] scores) {
+        BATCH_EVALUATOR.computeFeatures(batch);
+        for (int b = 0; b < batch.size(); b++) {
+            scores[b] = weights[AGGREGATE_HEIGHT] * batch.aggregateHeight[b] + weights[HOLES] * batch.totalHoles[b]
+                    + weights[BUMPINESS] * batch.bumpiness[b] + weights[WELLS] * batch.wells[b];
+        }
+    }
+
+    private static BatchEvaluator createBatchEvaluator() {
+        try {
+            String pack = Heuristic.class.getPackageName(); // Benchmarks are built into a package
+            String name = pack.isEmpty() ? "VectorBatchEvaluator" : pack + ".VectorBatchEvaluator";
+            return (BatchEvaluator) Class.forName(name).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) { // Not compiled in, or the module is missing
+            return new ScalarBatchEvaluator();
+        }
+    }
+
+    // Without the Vector API a batch costs more than scoring the boards one by one, it only adds the copying
+    public static boolean isBatchVectorized() {
+        return !(BATCH_EVALUATOR instanceof ScalarBatchEvaluator);
+    }
+
+    public double getWeight(int feature) {
+        return weights[feature];
+    }
+
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "Heuristic" + Arrays.toString(weights);
+    }
+}
@@ -0,0 +1,389 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Picks a placement for the piece in play by searching every reachable placement of it, and of the pieces
+// after it in the queue, to a fixed depth and scoring the boards at the end with a Heuristic. Holding is
+// considered at every depth. The placements of the piece in play are searched in parallel on a fork-join pool
+//
+// With a time budget the search deepens one piece at a time and keeps the deepest result that finished
+// before the deadline. When even one piece ahead does not finish, e.g. on very wide boards, the decision is the
+// best of the placements scored so far, at least the first one. Only generating the placements of the piece in
+// play is never cut short
+//
+// With a TranspositionTable the value of every subtree is cached under the board's Zobrist hash and the
+// pieces it still has to place. Different orders of the same placements, and the next decision's search of
+// what this one already looked at, then cost a probe. A table holds values for one Heuristic only
+public class HeuristicBot implements Bot {
+    private static final int SPLIT = 2; // Root placements per task, each is a whole subtree
+    private static final boolean BATCH_LEAVES = Heuristic.isBatchVectorized();
+
+    private final Heuristic heuristic;
+    private final int MAX_DEPTH; // Pieces placed along each line of the search, the one in play counts
+    private final long BUDGET_NANOS; // 0 always searches to MAX_DEPTH
+    private final ForkJoinPool pool; // null searches on the calling thread
+    private final TranspositionTable table; // null caches nothing
+    private final double LINE_WEIGHT;
+
+    // Search state reused by each thread, one generator and board per depth since a node's placements are
+    // walked while its children search
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    HeuristicBot(Heuristic heuristic, int maxDepth) {
+        this(heuristic, maxDepth, 0, null, null);
+    }
+
+    HeuristicBot(Heuristic heuristic, int maxDepth, long budgetMicros, ForkJoinPool pool) {
+        this(heuristic, maxDepth, budgetMicros, pool, null);
+    }
+
+    HeuristicBot(Heuristic heuristic, int maxDepth, long budgetMicros, ForkJoinPool pool, TranspositionTable table) {
+        if (maxDepth < 1)
+            throw new IllegalArgumentException("The search must place at least the piece in play");
+        this.heuristic = heuristic;
+        this.MAX_DEPTH = maxDepth;
+        this.BUDGET_NANOS = budgetMicros * 1000;
+        this.pool = pool;
+        this.table = table;
+        this.LINE_WEIGHT = heuristic.getWeight(Heuristic.LINES);
+    }
+
+    // Safe to call from several threads at once, each call only reads the Grid, but not from a task running in
+    // the bot's own pool. Returns null when the game is over or the piece in play has nowhere to go
+    @Override
+    public BotDecision decide(Grid grid) {
+        if (grid.isGameOver())
+            return null;
+        long deadline = System.nanoTime() + BUDGET_NANOS;
+        if (table != null)
+            table.newGeneration();
+        Scratch own = scratch.get();
+        Root root = new Root(grid, own);
+        if (root.options == 0)
+            return null;
+
+        // The value is kept with the move, an aborted deeper search has already overwritten part of values
+        int best = -1;
+        double value = Double.NaN;
+        int depth = 0;
+        for (int d = 1; d <= MAX_DEPTH; d++) {
+            root.search(d, BUDGET_NANOS == 0 ? Long.MAX_VALUE : deadline);
+            if (root.aborted) {
+                if (d == 1) { // Nothing finished, take what was scored
+                    best = root.best();
+                    if (best < 0) {
+                        best = 0;
+                        root.searchOption(own, best, d, Long.MAX_VALUE);
+                    }
+                    value = root.values[best];
+                    depth = d;
+                }
+                break;
+            }
+            best = root.best();
+            value = root.values[best];
+            depth = d;
+            if (d < MAX_DEPTH && BUDGET_NANOS > 0 && System.nanoTime() >= deadline)
+                break;
+        }
+        return root.decision(best, value, depth);
+    }
+
+    // Value of a board for the placements still to come, not counting lines cleared on the way to it, so the
+    // same board reached by other paths has the same value. NEGATIVE_INFINITY when the game ends on the way
+    // and NaN when the deadline passed
+    private double searchNode(Scratch own, Root root, Bitboard board, int depth, int maxDepth, int piece,
+            TetrominoType held, long deadline) {
+        if (depth == maxDepth || piece >= root.pieces.length)
+            return heuristic.evaluate(board, 0);
+        if (System.nanoTime() > deadline)
+            return Double.NaN;
+
+        // Holding can use up one piece more than there are placements left
+        int remaining = maxDepth - depth;
+        long key = 0;
+        if (table != null) {
+            key = board.getHash() ^ Zobrist.sequence(remaining, held, root.types, piece,
+                    Math.min(piece + remaining + 1, root.types.length));
+            double cached = table.probe(key);
+            if (!Double.isNaN(cached))
+                return cached;
+        }
+
+        MoveGenerator generator = own.generator(depth);
+        Bitboard child = own.board(depth, board);
+        Leaves leaves = own.leaves(depth, board);
+        double best = Double.NEGATIVE_INFINITY;
+
+        // Play the piece, then hold it and play whatever comes out instead
+        for (int option = 0; option < 2; option++) {
+            boolean hold = option == 1;
+            TetrominoType type = root.pieces[piece].getType();
+            if (hold && type == held)
+                continue;
+            Tetromino spawn;
+            if (!hold) {
+                spawn = spawnFromQueue(root, board, piece);
+            } else if (held == null) {
+                spawn = spawnFromQueue(root, board, piece + 1);
+            } else {
+                spawn = root.holdSpawns[held.ordinal()];
+            }
+            if (spawn == null)
+                continue;
+            int next = hold && held == null ? piece + 2 : piece + 1;
+            TetrominoType nextHeld = hold ? type : held;
+
+            // Children with nothing left to place are only scored, together once every child is placed
+            boolean leaf = BATCH_LEAVES && (depth + 1 == maxDepth || next >= root.pieces.length);
+            int count = generator.generate(board, spawn.getType(), spawn.getRotation(), spawn.getRow(),
+                    spawn.getColumn());
+            for (int i = 0; i < count; i++) {
+                child.copyFrom(board);
+                int cleared = child.place(spawn.getType(), generator.getRotation(i), generator.getRow(i),
+                        generator.getColumn(i));
+                if (leaf) {
+                    leaves.add(child, cleared);
+                    continue;
+                }
+                double value = searchNode(own, root, child, depth + 1, maxDepth, next, nextHeld, deadline);
+                if (Double.isNaN(value))
+                    return value;
+                best = Math.max(best, LINE_WEIGHT * cleared + value);
+            }
+        }
+        if (leaves.batch.size() > 0) {
+            heuristic.evaluate(leaves.batch, leaves.scores);
+            for (int b = 0; b < leaves.batch.size(); b++) {
+                best = Math.max(best, LINE_WEIGHT * leaves.cleared[b] + leaves.scores[b]);
+            }
+        }
+        if (table != null)
+            table.store(key, remaining, best);
+        return best;
+    }
+
+    // A queued piece where the Grid would spawn it, moved up into the pity rows if it is blocked, or null
+    // when the game would end instead
+    private static Tetromino spawnFromQueue(Root root, Bitboard board, int piece) {
+        if (piece >= root.pieces.length)
+            return null;
+        return spawn(board, root.pieces[piece], root.pityRows);
+    }
+
+    // A piece at its spawn, moved up as the Grid would if that is blocked, or null when the game would end
+    static Tetromino spawn(Bitboard board, Tetromino spawn, int pityRows) {
+        for (int up = 0; up <= pityRows; up++) {
+            if (board.fits(spawn.getType(), spawn.getRotation(), spawn.getRow() - up, spawn.getColumn())) {
+                if (up == 0)
+                    return spawn;
+                Tetromino moved = spawn.getCopy();
+                for (int i = 0; i < up; i++) {
+                    moved.moveUp();
+                }
+                return moved;
+            }
+        }
+        return null;
+    }
+
+    // The root of one decision: the placements of the piece in play, with and without holding, and what each
+    // one scored in the last search
+    private class Root {
+        private final Tetromino[] pieces; // The piece in play, then the queue
+        private final TetrominoType[] types; // Their types, for table keys
+        private final Tetromino[] holdSpawns = new Tetromino[TetrominoType.values().length];
+        private final int pityRows;
+        private final TetrominoType held;
+        private final Bitboard board;
+
+        private final MoveGenerator playGenerator;
+        private final MoveGenerator holdGenerator;
+        private final TetrominoType holdType; // Piece played after holding, null when holding is not an option
+        private final int playCount;
+        private final int options;
+        private final double[] values;
+
+        private volatile boolean aborted;
+
+        Root(Grid grid, Scratch own) {
+            pieces = new Tetromino[1 + grid.getQueue().size()];
+            pieces[0] = grid.getCurrentTetromino().getCopy();
+            for (int i = 1; i < pieces.length; i++) {
+                pieces[i] = grid.getQueue().get(i - 1).getCopy();
+            }
+            types = new TetrominoType[pieces.length];
+            for (int i = 0; i < pieces.length; i++) {
+                types[i] = pieces[i].getType();
+            }
+            for (TetrominoType type : TetrominoType.values()) {
+                holdSpawns[type.ordinal()] = grid.getHoldSpawn(type);
+            }
+            pityRows = grid.getPityRows();
+            held = grid.getHeldTetromino() == null ? null : grid.getHeldTetromino().getType();
+            board = grid.getBoard();
+
+            playGenerator = own.playGenerator;
+            holdGenerator = own.holdGenerator;
+            playCount = playGenerator.generate(grid);
+
+            // Holding swaps in the held piece, or the next one in the queue when nothing is held yet
+            Tetromino holdSpawn = null;
+            if (grid.canHold() && pieces[0].getType() != held)
+                holdSpawn = held == null ? spawnFromQueue(this, board, 1) : holdSpawns[held.ordinal()];
+            holdType = holdSpawn == null ? null : holdSpawn.getType();
+            int holdCount = holdSpawn == null ? 0
+                    : holdGenerator.generate(board, holdSpawn.getType(), holdSpawn.getRotation(), holdSpawn.getRow(),
+                            holdSpawn.getColumn());
+            options = playCount + holdCount;
+            values = new double[options];
+        }
+
+        void search(int maxDepth, long deadline) {
+            aborted = false;
+            Arrays.fill(values, Double.NaN);
+            Subtrees all = new Subtrees(this, maxDepth, deadline, 0, options);
+            if (pool == null) {
+                all.compute();
+            } else {
+                pool.invoke(all);
+            }
+        }
+
+        // Scores one root placement into values, flags the whole search aborted when the deadline passes and
+        // leaves the value NaN
+        void searchOption(Scratch own, int option, int maxDepth, long deadline) {
+            if (System.nanoTime() > deadline) {
+                aborted = true;
+                return;
+            }
+            boolean hold = option >= playCount;
+            MoveGenerator generator = hold ? holdGenerator : playGenerator;
+            int i = hold ? option - playCount : option;
+            TetrominoType type = hold ? holdType : pieces[0].getType();
+
+            Bitboard child = own.board(0, board);
+            child.copyFrom(board);
+            int cleared = child.place(type, generator.getRotation(i), generator.getRow(i), generator.getColumn(i));
+
+            // Holding with nothing held uses up the next piece in the queue as well
+            int next = hold && held == null ? 2 : 1;
+            TetrominoType nextHeld = hold ? pieces[0].getType() : held;
+            double value = searchNode(own, this, child, 1, maxDepth, next, nextHeld, deadline);
+            if (Double.isNaN(value))
+                aborted = true;
+            values[option] = LINE_WEIGHT * cleared + value;
+        }
+
+        // The best placement scored, -1 when none was
+        int best() {
+            int best = -1;
+            for (int option = 0; option < options; option++) {
+                if (!Double.isNaN(values[option]) && (best < 0 || values[option] > values[best]))
+                    best = option;
+            }
+            return best;
+        }
+
+        BotDecision decision(int option, double value, int depth) {
+            boolean hold = option >= playCount;
+            MoveGenerator generator = hold ? holdGenerator : playGenerator;
+            int i = hold ? option - playCount : option;
+
+            List<Input> inputs = generator.getPath(i);
+            if (hold)
+                inputs.add(0, Input.HOLD);
+            return new BotDecision(hold, generator.getPlacement(i), inputs, value, depth);
+        }
+    }
+
+    private class Subtrees extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Root root;
+        private final int maxDepth;
+        private final long deadline;
+        private final int from;
+        private final int to;
+
+        Subtrees(Root root, int maxDepth, long deadline, int from, int to) {
+            this.root = root;
+            this.maxDepth = maxDepth;
+            this.deadline = deadline;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (pool == null || to - from <= SPLIT) {
+                Scratch own = scratch.get();
+                for (int option = from; option < to && !root.aborted; option++) {
+                    root.searchOption(own, option, maxDepth, deadline);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new Subtrees(root, maxDepth, deadline, from, middle),
+                    new Subtrees(root, maxDepth, deadline, middle, to));
+        }
+    }
+
+    private static class Scratch {
+        private final MoveGenerator playGenerator = new MoveGenerator();
+        private final MoveGenerator holdGenerator = new MoveGenerator();
+        private MoveGenerator[] generators = new MoveGenerator[0];
+        private Bitboard[] boards = new Bitboard[0];
+        private Leaves[] leaves = new Leaves[0];
+
+        MoveGenerator generator(int depth) {
+            if (depth >= generators.length)
+                generators = Arrays.copyOf(generators, depth + 1);
+            if (generators[depth] == null)
+                generators[depth] = new MoveGenerator();
+            return generators[depth];
+        }
+
+        Bitboard board(int depth, Bitboard like) {
+            if (depth >= boards.length)
+                boards = Arrays.copyOf(boards, depth + 1);
+            if (boards[depth] == null || boards[depth].getHeight() != like.getHeight()
+                    || boards[depth].getColumns() != like.getColumns())
+                boards[depth] = new Bitboard(like.getHeight(), like.getColumns());
+            return boards[depth];
+        }
+
+        // Emptied, ready for the children of a node at this depth
+        Leaves leaves(int depth, Bitboard like) {
+            if (depth >= leaves.length)
+                leaves = Arrays.copyOf(leaves, depth + 1);
+            if (leaves[depth] == null || leaves[depth].batch.getHeight() != like.getHeight()
+                    || leaves[depth].batch.getColumns() != like.getColumns())
+                leaves[depth] = new Leaves(like.getHeight(), like.getColumns());
+            leaves[depth].batch.clear();
+            return leaves[depth];
+        }
+    }
+
+    // Boards at the end of the search waiting to be scored in one batch, with the lines each one cleared
+    private static class Leaves {
+        private final BoardBatch batch;
+        private int[] cleared = new int[0];
+        private double[] scores = new double[0];
+
+        Leaves(int height, int columns) {
+            batch = new BoardBatch(height, columns);
+        }
+
+        void add(Bitboard board, int lines) {
+            int b = batch.add(board);
+            if (b >= cleared.length) {
+                cleared = Arrays.copyOf(cleared, batch.getCapacity());
+                scores = new double[batch.getCapacity()];
+            }
+            cleared[b] = lines;
+        }
+    }
+}
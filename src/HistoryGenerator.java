@@ -0,0 +1,104 @@
+import java.nio.ByteBuffer;
+
+// Rerolls pieces found in the recent history a few times before accepting them (TGM style)
+// which makes droughts and repeats rare without the strict order of a bag
+public class HistoryGenerator implements PieceGenerator {
+    private static final TetrominoType[] TYPES = TetrominoType.values();
+
+    // Parameters are kept in the kind so custom generators can be rebuilt too, as offsets from the defaults so
+    // the default generator's kind is plain HISTORY: 3 bits of history size from bit 2, 3 bits of rolls from bit 5
+    private static final int DEFAULT_HISTORY = 4;
+    private static final int DEFAULT_ROLLS = 4;
+    private static final int MAX_HISTORY = PieceGenerator.STATE_SIZE - 10; // State is 10 bytes and the history
+    private static final int MAX_ROLLS = 8;
+
+    private final SeededRandom random;
+    private final int rolls;
+    private final TetrominoType[] history;
+    private int historyIndex;
+    private boolean first = true;
+    private final long seed;
+
+    HistoryGenerator(long seed) {
+        this(seed, DEFAULT_HISTORY, DEFAULT_ROLLS);
+    }
+
+    HistoryGenerator(long seed, int historySize, int rolls) {
+        if (historySize < 1 || historySize > MAX_HISTORY || rolls < 1 || rolls > MAX_ROLLS)
+            throw new IllegalArgumentException("History generators take 1 to " + MAX_HISTORY
+                    + " pieces of history and 1 to " + MAX_ROLLS + " rolls");
+        this.random = new SeededRandom(seed);
+        this.seed = seed;
+        this.rolls = rolls;
+        this.history = new TetrominoType[historySize];
+        // Starting history of S and Z keeps those out of the first few pieces
+        for (int i = 0; i < historySize; i++) {
+            history[i] = i % 2 == 0 ? TetrominoType.Z : TetrominoType.S;
+        }
+    }
+
+    @Override
+    public TetrominoType next() {
+        TetrominoType type;
+        if (first) { // Never start with a piece that forces an overhang
+            do {
+                type = TYPES[random.nextInt(TYPES.length)];
+            } while (type == TetrominoType.S || type == TetrominoType.Z || type == TetrominoType.O);
+            first = false;
+        } else {
+            type = TYPES[random.nextInt(TYPES.length)];
+            for (int i = 1; i < rolls && inHistory(type); i++) {
+                type = TYPES[random.nextInt(TYPES.length)];
+            }
+        }
+
+        history[historyIndex] = type;
+        historyIndex = (historyIndex + 1) % history.length;
+        return type;
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public int getKind() {
+        return HISTORY | ((history.length - 1) ^ (DEFAULT_HISTORY - 1)) << 2
+                | ((rolls - 1) ^ (DEFAULT_ROLLS - 1)) << 5;
+    }
+
+    static HistoryGenerator fromKind(int kind, long seed) {
+        int historySize = ((kind >>> 2 & 7) ^ (DEFAULT_HISTORY - 1)) + 1;
+        int rolls = ((kind >>> 5 & 7) ^ (DEFAULT_ROLLS - 1)) + 1;
+        return new HistoryGenerator(seed, historySize, rolls);
+    }
+
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        buffer.putLong(random.getState());
+        buffer.put((byte) (first ? 1 : 0));
+        buffer.put((byte) historyIndex);
+        for (TetrominoType type : history) {
+            buffer.put((byte) type.ordinal());
+        }
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+        random.setState(buffer.getLong());
+        first = buffer.get() != 0;
+        historyIndex = buffer.get();
+        for (int i = 0; i < history.length; i++) {
+            history[i] = TYPES[buffer.get()];
+        }
+    }
+
+    private boolean inHistory(TetrominoType type) {
+        for (TetrominoType recent : history) {
+            if (recent == type)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+// Single producer, single consumer ring buffer of timestamped input events
+// The EDT offers key presses and releases, the simulation thread drains them, neither side locks or allocates
+public class InputQueue {
+    private final long[] times;
+    private final int[] codes;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong(); // Next event to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // Next free slot, written by the producer
+
+    InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1; // Round up to a power of two
+        times = new long[size];
+        codes = new int[size];
+        mask = size - 1;
+    }
+
+    // Events are packed as the Input ordinal and a released bit
+    public static int encode(Input input, boolean pressed) {
+        return input.ordinal() << 1 | (pressed ? 0 : 1);
+    }
+
+    public static Input decodeInput(int code) {
+        return Input.values()[code >>> 1];
+    }
+
+    public static boolean decodePressed(int code) {
+        return (code & 1) == 0;
+    }
+
+    // Producer only, returns false when the queue is full
+    public boolean offer(long time, int code) {
+        long t = tail.get();
+        if (t - head.get() > mask)
+            return false;
+
+        int index = (int) t & mask;
+        times[index] = time;
+        codes[index] = code;
+        tail.lazySet(t + 1); // Publishes the slot after it has been written
+        return true;
+    }
+
+    // Consumer only
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    public long peekTime() {
+        return times[(int) head.get() & mask];
+    }
+
+    public int peekCode() {
+        return codes[(int) head.get() & mask];
+    }
+
+    public void remove() {
+        head.lazySet(head.get() + 1);
+    }
+}
@@ -0,0 +1,55 @@
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+
+// Keys become timestamped events for the simulation thread, the Grid is never touched from the EDT
+public class KeyboardInput implements KeyListener {
+    private final Simulation simulation;
+
+    KeyboardInput(Simulation simulation) {
+        this.simulation = simulation;
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {
+
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        if (e.getKeyCode() == KeyEvent.VK_R) {
+            simulation.requestReset(); // Ignored unless the game is over
+        }
+
+        Input input = toInput(e.getKeyCode());
+        if (input != null)
+            simulation.keyPressed(input);
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        Input input = toInput(e.getKeyCode());
+        if (input != null)
+            simulation.keyReleased(input);
+    }
+
+    private static Input toInput(int keyCode) {
+        switch (keyCode) {
+            case KeyEvent.VK_RIGHT:
+                return Input.RIGHT;
+            case KeyEvent.VK_LEFT:
+                return Input.LEFT;
+            case KeyEvent.VK_UP:
+                return Input.ROTATE_CLOCKWISE;
+            case KeyEvent.VK_SPACE:
+                return Input.HARD_DROP;
+            case KeyEvent.VK_DOWN:
+                return Input.SOFT_DROP;
+            case KeyEvent.VK_CONTROL:
+                return Input.ROTATE_COUNTER_CLOCKWISE;
+            case KeyEvent.VK_C:
+                return Input.HOLD;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Picks a placement by Monte Carlo tree search. The tree holds placements of the piece in play and of the
+// known queue, with and without holding, and every walk down it ends in a rollout: the rest of the known
+// pieces, then random ones dealt by a generator of the Grid's kind, dropped mostly greedily up to a fixed
+// number of pieces from the root. The placement walked through most often is played
+//
+// Every worker of the pool walks the same tree until the budget runs out, so the number of rollouts grows
+// with the cores. Node statistics are atomic counters and a walk counts its visits on the way down, before
+// its reward is known, so for a moment the nodes look like a loss to other workers, who then spread out
+// over other branches instead of all walking the same one (virtual loss)
+public class MonteCarloBot implements Bot {
+    private static final int HORIZON = 8; // Pieces placed from the root to the end of every rollout
+    private static final int EXPAND_VISITS = 2; // A node gets children on its second walk, the first only rolls out
+    private static final double EXPLORATION = 0.4; // UCT constant, rewards are between 0 and 1
+    private static final double RANDOM_MOVES = 0.05; // Share of rollout placements picked at random
+    private static final double REWARD_SCALE = 4; // Heuristic points over the greedy rollout that score 0.73
+    private static final long FIXED_POINT = 1L << 24; // Rewards are summed as fixed point in an AtomicLong
+
+    private final Heuristic heuristic;
+    private final long BUDGET_NANOS;
+    private final ForkJoinPool pool; // null searches on the calling thread
+    private final double LINE_WEIGHT;
+    private final AtomicLong rollouts = new AtomicLong();
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    MonteCarloBot(Heuristic heuristic, long budgetMicros, ForkJoinPool pool) {
+        if (budgetMicros <= 0)
+            throw new IllegalArgumentException("The search runs until its budget is spent, it needs one");
+        this.heuristic = heuristic;
+        this.BUDGET_NANOS = budgetMicros * 1000;
+        this.pool = pool;
+        this.LINE_WEIGHT = heuristic.getWeight(Heuristic.LINES);
+    }
+
+    // Safe to call from several threads at once, but not from a task running in the bot's own pool
+    @Override
+    public BotDecision decide(Grid grid) {
+        if (grid.isGameOver())
+            return null;
+        long deadline = System.nanoTime() + BUDGET_NANOS;
+        Tree tree = new Tree(grid, scratch.get());
+        if (tree.root.children.get().length == 0)
+            return null;
+
+        Walks walks = new Walks(tree, deadline, pool == null ? 1 : pool.getParallelism());
+        if (pool == null) {
+            walks.compute();
+        } else {
+            pool.invoke(walks);
+        }
+        return tree.decision();
+    }
+
+    // Rollouts over every decision so far
+    public long getRollouts() {
+        return rollouts.get();
+    }
+
+    // One placement, or the root. Fields other than the counters and children are fixed when it is created
+    private static class Node {
+        private final TetrominoType type; // Piece placed to get here, null at the root
+        private final int rotation;
+        private final int row;
+        private final int column;
+        private final boolean hold;
+        private final int option; // Index over the root's play then hold placements, for the root's children
+        private final int depth; // Pieces placed from the root
+        private final int piece; // Next piece of the known sequence to play
+        private final TetrominoType held;
+        private final double prior; // Heuristic value of the placement alone, orders the first visits
+
+        private final AtomicInteger visits = new AtomicInteger();
+        private final AtomicLong rewards = new AtomicLong();
+        private final AtomicReference<Node[]> children = new AtomicReference<>();
+
+        Node(TetrominoType type, int rotation, int row, int column, boolean hold, int option, int depth, int piece,
+                TetrominoType held, double prior) {
+            this.type = type;
+            this.rotation = rotation;
+            this.row = row;
+            this.column = column;
+            this.hold = hold;
+            this.option = option;
+            this.depth = depth;
+            this.piece = piece;
+            this.held = held;
+            this.prior = prior;
+        }
+
+        double getMeanReward() {
+            int n = visits.get();
+            return n == 0 ? 0 : rewards.get() / (double) FIXED_POINT / n;
+        }
+    }
+
+    private class Tree {
+        private final Tetromino[] pieces; // The piece in play, then the queue
+        private final Tetromino[] holdSpawns = new Tetromino[TetrominoType.values().length];
+        private final Tetromino[] queueSpawns = new Tetromino[TetrominoType.values().length];
+        private final int pityRows;
+        private final int generatorKind;
+        private final Bitboard board;
+
+        private final MoveGenerator playGenerator;
+        private final MoveGenerator holdGenerator;
+        private final Node root;
+        private final double baseline; // Value of a greedy rollout from the root, the reward a rollout is held to
+
+        Tree(Grid grid, Scratch own) {
+            pieces = new Tetromino[1 + grid.getQueue().size()];
+            pieces[0] = grid.getCurrentTetromino().getCopy();
+            for (int i = 1; i < pieces.length; i++) {
+                pieces[i] = grid.getQueue().get(i - 1).getCopy();
+            }
+            for (TetrominoType type : TetrominoType.values()) {
+                holdSpawns[type.ordinal()] = grid.getHoldSpawn(type);
+                queueSpawns[type.ordinal()] = grid.getQueueSpawn(type);
+            }
+            pityRows = grid.getPityRows();
+            int kind;
+            try {
+                kind = grid.getGenerator().getKind();
+            } catch (IllegalStateException e) { // Custom generators are stood in for by uniform draws
+                kind = PieceGenerator.UNIFORM;
+            }
+            generatorKind = kind;
+            board = grid.getBoard();
+
+            // The root is expanded here, on the calling thread, so its generators still hold the paths at the end
+            playGenerator = own.rootPlayGenerator;
+            holdGenerator = own.rootHoldGenerator;
+            TetrominoType held = grid.getHeldTetromino() == null ? null : grid.getHeldTetromino().getType();
+            root = new Node(null, 0, 0, 0, false, 0, 0, 0, held, 0);
+            root.children.set(expand(root, board, grid.canHold(), playGenerator, holdGenerator, own.trial(board)));
+
+            Bitboard rollout = own.board(board);
+            rollout.copyFrom(board);
+            baseline = rollout(own, rollout, root, 0, false);
+        }
+
+        // Children of a node, best prior first, none when the piece to play does not fit
+        private Node[] expand(Node node, Bitboard board, boolean canHold, MoveGenerator play, MoveGenerator hold,
+                Bitboard trial) {
+            List<Node> children = new ArrayList<>();
+            TetrominoType type = pieces[node.piece].getType();
+            Tetromino spawn = spawnFromQueue(board, node.piece);
+            int playCount = spawn == null ? 0 : addChildren(children, node, board, trial, play, spawn, false, 0,
+                    node.piece + 1, node.held);
+
+            // Holding swaps in the held piece, or the next one in the queue when nothing is held yet
+            if (canHold && type != node.held) {
+                spawn = node.held == null ? spawnFromQueue(board, node.piece + 1) : holdSpawns[node.held.ordinal()];
+                if (spawn != null)
+                    addChildren(children, node, board, trial, hold, spawn, true, playCount,
+                            node.held == null ? node.piece + 2 : node.piece + 1, type);
+            }
+            children.sort((a, b) -> Double.compare(b.prior, a.prior));
+            return children.toArray(new Node[0]);
+        }
+
+        private int addChildren(List<Node> children, Node node, Bitboard board, Bitboard trial,
+                MoveGenerator generator, Tetromino spawn, boolean hold, int firstOption, int next,
+                TetrominoType nextHeld) {
+            TetrominoType type = spawn.getType();
+            int count = generator.generate(board, type, spawn.getRotation(), spawn.getRow(), spawn.getColumn());
+            for (int i = 0; i < count; i++) {
+                int rotation = generator.getRotation(i);
+                int row = generator.getRow(i);
+                int column = generator.getColumn(i);
+                trial.copyFrom(board);
+                int cleared = trial.place(type, rotation, row, column);
+                double prior = LINE_WEIGHT * cleared + heuristic.evaluate(trial, 0);
+                children.add(new Node(type, rotation, row, column, hold, firstOption + i, node.depth + 1, next,
+                        nextHeld, prior));
+            }
+            return count;
+        }
+
+        private Tetromino spawnFromQueue(Bitboard board, int piece) {
+            if (piece >= pieces.length)
+                return null;
+            return HeuristicBot.spawn(board, pieces[piece], pityRows);
+        }
+
+        // One walk from the root to a leaf, a rollout from there, and its reward added along the way back
+        void walk(Scratch own) {
+            Bitboard board = own.board(this.board);
+            board.copyFrom(this.board);
+            Node[] path = own.path(pieces.length + 2);
+            int length = 0;
+            int lines = 0;
+
+            Node node = root;
+            node.visits.incrementAndGet();
+            path[length++] = node;
+            double value;
+            while (true) {
+                Node[] children = node.children.get();
+                if (children == null) {
+                    if (node.piece >= pieces.length || node.visits.get() < EXPAND_VISITS) {
+                        value = rollout(own, board, node, lines, true);
+                        break;
+                    }
+                    // Racing walks may both expand a node, the first one to publish its children wins
+                    children = expand(node, board, true, own.playGenerator, own.holdGenerator, own.trial(board));
+                    if (!node.children.compareAndSet(null, children))
+                        children = node.children.get();
+                }
+                if (children.length == 0) { // Topped out
+                    value = Double.NEGATIVE_INFINITY;
+                    break;
+                }
+                node = select(node, children);
+                node.visits.incrementAndGet();
+                lines += board.place(node.type, node.rotation, node.row, node.column);
+                path[length++] = node;
+            }
+
+            long reward = Math.round(reward(value) * FIXED_POINT);
+            for (int i = 0; i < length; i++) {
+                path[i].rewards.addAndGet(reward);
+            }
+            rollouts.incrementAndGet();
+        }
+
+        // UCT over the children with the best priors, more of them as the parent gets visited (progressive
+        // widening), a node has dozens of placements and most are plainly bad
+        private Node select(Node parent, Node[] children) {
+            int visits = parent.visits.get();
+            double log = Math.log(visits);
+            int width = Math.min(children.length, 1 + (int) Math.sqrt(visits));
+            Node best = children[0];
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < width; i++) {
+                Node child = children[i];
+                int n = child.visits.get();
+                if (n == 0)
+                    return child;
+                double score = child.rewards.get() / (double) FIXED_POINT / n + EXPLORATION * Math.sqrt(log / n);
+                if (score > bestScore) {
+                    best = child;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+
+        // Plays from a node's board to the horizon, returns the value at the end or NEGATIVE_INFINITY on a top out
+        private double rollout(Scratch own, Bitboard board, Node node, int lines, boolean explore) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            PieceGenerator draws = null;
+            int piece = node.piece;
+            for (int placed = node.depth; placed < HORIZON; placed++) {
+                Tetromino spawn;
+                if (piece < pieces.length) {
+                    spawn = pieces[piece++];
+                } else {
+                    if (draws == null)
+                        draws = PieceGenerator.create(generatorKind, explore ? random.nextLong() : 0);
+                    spawn = queueSpawns[draws.next().ordinal()];
+                }
+                spawn = HeuristicBot.spawn(board, spawn, pityRows);
+                if (spawn == null)
+                    return Double.NEGATIVE_INFINITY;
+                int cleared = drop(own, board, spawn, explore && random.nextDouble() < RANDOM_MOVES, random);
+                if (cleared < 0)
+                    return Double.NEGATIVE_INFINITY;
+                lines += cleared;
+            }
+            return LINE_WEIGHT * lines + heuristic.evaluate(board, 0);
+        }
+
+        // Drops a piece straight down from its spawn row, in the rotation and column the heuristic likes best or
+        // in any of them. Columns are not checked for being reachable, a rollout only needs to be plausible
+        // Returns the lines cleared, or -1 when there is nowhere to drop
+        private int drop(Scratch own, Bitboard board, Tetromino spawn, boolean randomMove, ThreadLocalRandom random) {
+            TetrominoType type = spawn.getType();
+            int row = spawn.getRow();
+            Bitboard trial = own.trial(board);
+            int candidates = 0;
+            int bestRotation = 0;
+            int bestColumn = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int rotation = 0; rotation < 4; rotation++) {
+                if (type.getCanonicalRotation(rotation) != rotation)
+                    continue;
+                for (int column = -2; column < board.getColumns() + 2; column++) {
+                    if (!board.fits(type, rotation, row, column))
+                        continue;
+                    candidates++;
+                    if (randomMove) { // Reservoir sampling, every candidate ends up equally likely
+                        if (random.nextInt(candidates) == 0) {
+                            bestRotation = rotation;
+                            bestColumn = column;
+                        }
+                        continue;
+                    }
+                    trial.copyFrom(board);
+                    int cleared = trial.place(type, rotation, row + board.dropDistance(type, rotation, row, column),
+                            column);
+                    double value = LINE_WEIGHT * cleared + heuristic.evaluate(trial, 0);
+                    if (value > bestValue) {
+                        bestValue = value;
+                        bestRotation = rotation;
+                        bestColumn = column;
+                    }
+                }
+            }
+            if (candidates == 0)
+                return -1;
+            return board.place(type, bestRotation, row + board.dropDistance(type, bestRotation, row, bestColumn),
+                    bestColumn);
+        }
+
+        // Rollouts that beat the greedy one score over 0.5, top outs score 0
+        private double reward(double value) {
+            if (value == Double.NEGATIVE_INFINITY)
+                return 0;
+            if (baseline == Double.NEGATIVE_INFINITY)
+                return 1;
+            return 1 / (1 + Math.exp((baseline - value) / REWARD_SCALE));
+        }
+
+        BotDecision decision() {
+            Node[] children = root.children.get();
+            Node best = mostVisited(children);
+            MoveGenerator generator = best.hold ? holdGenerator : playGenerator;
+            int i = best.hold ? best.option - playGenerator.getCount() : best.option;
+
+            int depth = 1;
+            for (Node node = best; node.children.get() != null && node.children.get().length > 0; depth++) {
+                node = mostVisited(node.children.get());
+                if (node.visits.get() == 0)
+                    break;
+            }
+
+            List<Input> inputs = generator.getPath(i);
+            if (best.hold)
+                inputs.add(0, Input.HOLD);
+            return new BotDecision(best.hold, generator.getPlacement(i), inputs, best.getMeanReward(), depth);
+        }
+
+        // Ties, such as nothing visited at all, go to the best prior
+        private Node mostVisited(Node[] children) {
+            Node best = children[0];
+            for (Node child : children) {
+                if (child.visits.get() > best.visits.get())
+                    best = child;
+            }
+            return best;
+        }
+    }
+
+    // Walks the tree until the deadline, split into one task per worker
+    private class Walks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Tree tree;
+        private final long deadline;
+        private final int workers;
+
+        Walks(Tree tree, long deadline, int workers) {
+            this.tree = tree;
+            this.deadline = deadline;
+            this.workers = workers;
+        }
+
+        @Override
+        protected void compute() {
+            if (workers <= 1) {
+                Scratch own = scratch.get();
+                do {
+                    tree.walk(own);
+                } while (System.nanoTime() < deadline);
+                return;
+            }
+
+            invokeAll(new Walks(tree, deadline, workers / 2), new Walks(tree, deadline, workers - workers / 2));
+        }
+    }
+
+    private static class Scratch {
+        private final MoveGenerator rootPlayGenerator = new MoveGenerator();
+        private final MoveGenerator rootHoldGenerator = new MoveGenerator();
+        private final MoveGenerator playGenerator = new MoveGenerator();
+        private final MoveGenerator holdGenerator = new MoveGenerator();
+        private Bitboard board;
+        private Bitboard trial;
+        private Node[] path = new Node[0];
+
+        Bitboard board(Bitboard like) {
+            if (board == null || board.getHeight() != like.getHeight() || board.getColumns() != like.getColumns())
+                board = new Bitboard(like.getHeight(), like.getColumns());
+            return board;
+        }
+
+        Bitboard trial(Bitboard like) {
+            if (trial == null || trial.getHeight() != like.getHeight() || trial.getColumns() != like.getColumns())
+                trial = new Bitboard(like.getHeight(), like.getColumns());
+            return trial;
+        }
+
+        Node[] path(int length) {
+            if (path.length < length)
+                path = new Node[length];
+            return path;
+        }
+    }
+}
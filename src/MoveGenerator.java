@@ -0,0 +1,232 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Finds every distinct resting place a piece can reach with LEFT, RIGHT, the two rotations and single row
+// SOFT_DROPs, finished by a HARD_DROP, so tucks and spins under overhangs are found as well as plain drops
+//
+// The search is a breadth first walk over (row, column, rotation) states, so the first path found to each
+// placement is a shortest one. States are ints and every array is kept between calls, a search allocates
+// nothing unless the board grows. One generator per thread, results are only valid until the next generate
+public class MoveGenerator {
+    private static final int MARGIN = 2; // Piece cells are at most 2 rows or columns from the rotate origin
+    private static final int NONE = -1;
+
+    // The arrays hold every state of the board, about 18 bytes each, so huge boards are refused rather than
+    // taking gigabytes per generator. 2^20 states is a board of about 700 rows
+    public static final int MAX_STATES = 1 << 20;
+
+    private static final Input[] EDGES = { Input.LEFT, Input.RIGHT, Input.ROTATE_CLOCKWISE,
+            Input.ROTATE_COUNTER_CLOCKWISE, Input.SOFT_DROP };
+    private static final int[] EDGE_COLUMNS = { -1, 1, 0, 0, 0 };
+    private static final int[] EDGE_TURNS = { 0, 0, 1, 3, 0 };
+    private static final int SOFT_DROP_EDGE = 4;
+
+    private int height;
+    private int columns;
+    private int stride; // States per row, (columns + 2 * MARGIN) * 4
+
+    // Per state, indexed by ((row + MARGIN) * (columns + 2 * MARGIN) + column + MARGIN) * 4 + rotation
+    private long[] visited = new long[0];
+    private int[] depth = new int[0];
+    private int[] parent = new int[0];
+    private byte[] parentInput = new byte[0];
+    private int[] queue = new int[0];
+
+    // Per placement footprint, (canonical rotation, top row, left column)
+    private long[] found = new long[0];
+
+    // Drop seeds, see generate
+    private int[] seeds = new int[0];
+    private int seedCount;
+
+    // Results, the resting state of each placement and the state its HARD_DROP was pressed from
+    private int count;
+    private int[] restStates = new int[64];
+    private int[] dropStates = new int[64];
+
+    private TetrominoType type;
+
+    public int generate(Grid grid) {
+        Tetromino current = grid.getCurrentTetromino();
+        return generate(grid.getBoard(), current.getType(), current.getRotation(), current.getRow(),
+                current.getColumn());
+    }
+
+    // Returns the number of placements found from the given starting state, 0 when the piece does not fit
+    public int generate(Bitboard board, TetrominoType type, int rotation, int row, int column) {
+        resize(board.getHeight(), board.getColumns());
+        this.type = type;
+        count = 0;
+        seedCount = 0;
+        Arrays.fill(visited, 0);
+        Arrays.fill(found, 0);
+        if (!board.fits(type, rotation, row, column))
+            return 0;
+
+        // Above the stack every state is free, so dropping through it one row at a time only multiplies the
+        // states visited. Pieces there move sideways and rotate at the spawn row, and each of those states
+        // drops straight to the first row the stack could touch, as the same number of SOFT_DROPs
+        int stackRow = board.getTop() - 1 - MARGIN; // Lowest origin row no state can touch the stack from
+        int spawnRow = stackRow > row ? row : NONE;
+
+        int head = 0;
+        int tail = 0;
+        int start = state(row, column, rotation);
+        visit(start, NONE, NONE, 0);
+        queue[tail++] = start;
+
+        int nextSeed = 0;
+        while (head < tail || nextSeed < seedCount) {
+            int s;
+            if (nextSeed < seedCount && (head == tail || depth[seeds[nextSeed]] <= depth[queue[head]])) {
+                s = seeds[nextSeed++]; // Seeds were visited when found, they join the walk at their own depth
+            } else {
+                s = queue[head++];
+            }
+            int r = rowOf(s);
+            int c = columnOf(s);
+            int rot = s & 3;
+
+            // A state reached by dropping lands where its parent does, and the parent's HARD_DROP is shorter
+            if (parentInput[s] != SOFT_DROP_EDGE) {
+                int rest = r + board.dropDistance(type, rot, r, c);
+                addPlacement(state(rest, c, rot), s);
+            }
+
+            int edges = type.isRotatable() ? EDGES.length : EDGES.length - 2;
+            for (int i = 0; i < edges; i++) {
+                int e = type.isRotatable() ? i : i < 2 ? i : SOFT_DROP_EDGE; // O pieces skip the rotations
+                int nc = c + EDGE_COLUMNS[e];
+                int nrot = (rot + EDGE_TURNS[e]) & 3;
+                int nr = e != SOFT_DROP_EDGE ? r : r == spawnRow ? stackRow : r + 1;
+                if (nc < -MARGIN || nc >= columns + MARGIN)
+                    continue;
+                int next = state(nr, nc, nrot);
+                if (isVisited(next) || !board.fits(type, nrot, nr, nc))
+                    continue;
+
+                visit(next, s, e, depth[s] + (nr - r == 0 ? 1 : nr - r));
+                if (nr - r > 1) {
+                    seeds[seedCount++] = next;
+                } else {
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void visit(int s, int from, int edge, int d) {
+        visited[s >>> 6] |= 1L << s;
+        depth[s] = d;
+        parent[s] = from;
+        parentInput[s] = (byte) edge;
+    }
+
+    private boolean isVisited(int s) {
+        return (visited[s >>> 6] & 1L << s) != 0;
+    }
+
+    private void addPlacement(int rest, int from) {
+        int rot = rest & 3;
+        int key = ((rowOf(rest) + type.getMinRow(rot)) * columns + columnOf(rest) + type.getMinColumn(rot)) * 4
+                + type.getCanonicalRotation(rot);
+        if ((found[key >>> 6] & 1L << key) != 0)
+            return;
+        found[key >>> 6] |= 1L << key;
+
+        if (count == restStates.length) {
+            restStates = Arrays.copyOf(restStates, count * 2);
+            dropStates = Arrays.copyOf(dropStates, count * 2);
+        }
+        restStates[count] = rest;
+        dropStates[count] = from;
+        count++;
+    }
+
+    public static boolean canSearch(int height, int columns) {
+        return (long) (height + 2 * MARGIN) * (columns + 2 * MARGIN) * 4 <= MAX_STATES;
+    }
+
+    private void resize(int height, int columns) {
+        if (height == this.height && columns == this.columns)
+            return;
+        if (!canSearch(height, columns))
+            throw new IllegalArgumentException("A " + height + " by " + columns + " board is too big to search");
+        this.height = height;
+        this.columns = columns;
+        this.stride = (columns + 2 * MARGIN) * 4;
+
+        int states = (height + 2 * MARGIN) * stride;
+        visited = new long[(states >>> 6) + 1];
+        depth = new int[states];
+        parent = new int[states];
+        parentInput = new byte[states];
+        queue = new int[states];
+        seeds = new int[states];
+        found = new long[((height * columns * 4) >>> 6) + 1];
+    }
+
+    private int state(int row, int column, int rotation) {
+        return (row + MARGIN) * stride + (column + MARGIN) * 4 + rotation;
+    }
+
+    private int rowOf(int s) {
+        return s / stride - MARGIN;
+    }
+
+    private int columnOf(int s) {
+        return s % stride / 4 - MARGIN;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public TetrominoType getType() {
+        return type;
+    }
+
+    public int getRotation(int placement) {
+        return restStates[placement] & 3;
+    }
+
+    public int getRow(int placement) {
+        return rowOf(restStates[placement]);
+    }
+
+    public int getColumn(int placement) {
+        return columnOf(restStates[placement]);
+    }
+
+    public Placement getPlacement(int placement) {
+        return new Placement(getRotation(placement), getColumn(placement), getRow(placement));
+    }
+
+    // Inputs in a shortest path, the final HARD_DROP included
+    public int getPathLength(int placement) {
+        return depth[dropStates[placement]] + 1;
+    }
+
+    // Writes the path into inputs, which must hold getPathLength inputs, and returns its length
+    public int getPath(int placement, Input[] inputs) {
+        int length = getPathLength(placement);
+        int i = length - 1;
+        inputs[i--] = Input.HARD_DROP;
+        for (int s = dropStates[placement]; parent[s] != NONE; s = parent[s]) {
+            Input input = EDGES[parentInput[s]];
+            int steps = input == Input.SOFT_DROP ? rowOf(s) - rowOf(parent[s]) : 1;
+            for (int k = 0; k < steps; k++) {
+                inputs[i--] = input;
+            }
+        }
+        return length;
+    }
+
+    public List<Input> getPath(int placement) {
+        Input[] inputs = new Input[getPathLength(placement)];
+        getPath(placement, inputs);
+        return new ArrayList<>(Arrays.asList(inputs));
+    }
+}
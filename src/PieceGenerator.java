@@ -0,0 +1,37 @@
+import java.nio.ByteBuffer;
+
+// Source of upcoming pieces, each Grid owns one so its sequence depends only on the seed
+public interface PieceGenerator {
+    // Kinds that replays and snapshots can rebuild from a seed, stored as one byte. The low bits pick the
+    // generator and the bits above carry its parameters, HistoryGenerator's history size and rolls
+    int UNIFORM = 0;
+    int BAG = 1;
+    int HISTORY = 2;
+    int KIND_MASK = 3;
+
+    TetrominoType next();
+
+    long getSeed(); // The seed it was built from, enough to deal the same sequence again
+
+    int getKind();
+
+    int STATE_SIZE = 16; // Room every kind's state fits in, so snapshots keep a fixed layout
+
+    // Everything next() depends on, so a restored generator deals exactly what this one would have
+    void writeState(ByteBuffer buffer);
+
+    void readState(ByteBuffer buffer);
+
+    static PieceGenerator create(int kind, long seed) {
+        if ((kind & KIND_MASK) == HISTORY)
+            return HistoryGenerator.fromKind(kind, seed);
+        switch (kind) {
+            case UNIFORM:
+                return new UniformGenerator(seed);
+            case BAG:
+                return new BagGenerator(seed);
+            default:
+                throw new IllegalArgumentException("Unknown generator " + kind);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+// Where a piece should come to rest, as the rotation state and origin column of the Tetromino
+// The origin row is only known when the placement came from a search, NONE otherwise
+public class Placement {
+    public static final int NONE = -1;
+
+    private final int rotation;
+    private final int column;
+    private final int row;
+
+    Placement(int rotation, int column) {
+        this(rotation, column, NONE);
+    }
+
+    Placement(int rotation, int column, int row) {
+        this.rotation = rotation;
+        this.column = column;
+        this.row = row;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public int getRow() {
+        return row;
+    }
+}
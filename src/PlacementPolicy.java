@@ -0,0 +1,5 @@
+// Chooses where each piece goes in a headless game
+// Batch runs share one policy between threads, so implementations must not keep per-game state
+public interface PlacementPolicy {
+    Placement choosePlacement(Grid grid);
+}
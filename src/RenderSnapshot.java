@@ -0,0 +1,171 @@
+// Everything the renderer needs from a Grid, copied by the simulation thread so painting never reads live state
+// Cells are only copied again when the board changed since this snapshot last captured it
+//
+// Only a viewport of the visible rows is copied, the whole board when it fits. On a board bigger than the view
+// the viewport pages along with the current piece in steps of half a view, keeping the piece in the middle half
+// of it, so a capture costs the view's area however big the board is and the view only moves now and then
+public class RenderSnapshot {
+    private final int rows;
+    private final int columns;
+    private final int pityRows;
+    private final int viewRows;
+    private final int viewColumns;
+    private final byte[][] cells; // Bitboard cell codes of the viewport
+    private int viewTop; // Visible row and column of the viewport's top left cell
+    private int viewLeft;
+    private Bitboard capturedBoard; // A different Grid means a different board, so the version alone is not enough
+    private long boardVersion;
+
+    private TetrominoType currentType;
+    private int currentRotation;
+    private int currentRow;
+    private int currentColumn;
+    private int ghostDistance;
+
+    private TetrominoType heldType;
+    private final TetrominoType[] queue;
+
+    private int score;
+    private int level;
+    private int lines;
+    private boolean gameOver;
+
+    RenderSnapshot(Grid grid) {
+        this(grid, grid.getRows(), grid.getColumns());
+    }
+
+    RenderSnapshot(Grid grid, int viewRows, int viewColumns) {
+        this.rows = grid.getRows();
+        this.columns = grid.getColumns();
+        this.pityRows = grid.getPityRows();
+        this.viewRows = Math.min(viewRows, rows);
+        this.viewColumns = Math.min(viewColumns, columns);
+        this.cells = new byte[this.viewRows][this.viewColumns];
+        this.queue = new TetrominoType[grid.getQueue().size()];
+    }
+
+    public void capture(Grid grid) {
+        Bitboard board = grid.getBoard();
+        Tetromino current = grid.getCurrentTetromino();
+        int top = follow(current.getRow() - pityRows, viewRows, rows);
+        int left = follow(current.getColumn(), viewColumns, columns);
+        if (board != capturedBoard || board.getVersion() != boardVersion || top != viewTop || left != viewLeft) {
+            // Pity rows sit above the visible board and are never drawn
+            for (int r = 0; r < viewRows; r++) {
+                board.copyRow(top + r + pityRows, left, cells[r], viewColumns);
+            }
+            capturedBoard = board;
+            boardVersion = board.getVersion();
+            viewTop = top;
+            viewLeft = left;
+        }
+
+        currentType = current.getType();
+        currentRotation = current.getRotation();
+        currentRow = current.getRow();
+        currentColumn = current.getColumn();
+        ghostDistance = grid.getGhostDistance();
+
+        heldType = grid.getHeldTetromino() == null ? null : grid.getHeldTetromino().getType();
+        for (int i = 0; i < queue.length; i++) {
+            queue[i] = grid.getQueue().get(i).getType();
+        }
+
+        score = grid.getScore();
+        level = grid.getLevel();
+        lines = grid.getLines();
+        gameOver = grid.isGameOver();
+    }
+
+    // First row or column of a view of the given size, the page holding position shifted back a quarter view
+    private static int follow(int position, int view, int size) {
+        int step = Math.max(view / 2, 1);
+        int start = Math.floorDiv(position, step) * step - step / 2;
+        return Math.max(Math.min(start, size - view), 0);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getPityRows() {
+        return pityRows;
+    }
+
+    public int getViewRows() {
+        return viewRows;
+    }
+
+    public int getViewColumns() {
+        return viewColumns;
+    }
+
+    public int getViewTop() {
+        return viewTop;
+    }
+
+    public int getViewLeft() {
+        return viewLeft;
+    }
+
+    // Row and column within the viewport, not the board
+    public byte getCell(int row, int column) {
+        return cells[row][column];
+    }
+
+    public byte[] getCellRow(int row) {
+        return cells[row];
+    }
+
+    public long getBoardVersion() {
+        return boardVersion;
+    }
+
+    public TetrominoType getCurrentType() {
+        return currentType;
+    }
+
+    public int getCurrentRotation() {
+        return currentRotation;
+    }
+
+    public int getCurrentRow() {
+        return currentRow;
+    }
+
+    public int getCurrentColumn() {
+        return currentColumn;
+    }
+
+    public int getGhostDistance() {
+        return ghostDistance;
+    }
+
+    public TetrominoType getHeldType() {
+        return heldType;
+    }
+
+    public TetrominoType[] getQueue() {
+        return queue;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
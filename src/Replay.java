@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Binary replay format, written by ReplayRecorder. A replay is one session of a Grid, from its seed through
+// any number of games separated by resets, and an archive is any number of replays written back to back
+//
+// Header: version byte, generator byte, seed as 8 bytes, then varints for rows, starting level, end tick,
+// event count and the byte length of the events. Each event is one varint of
+// (ticks since the previous event << 3 | code), code being an Input ordinal or RESET
+public class Replay {
+    public static final int VERSION = 1;
+    public static final int RESET = 7;
+
+    static final int CODE_BITS = 3;
+    static final int CODE_MASK = (1 << CODE_BITS) - 1;
+    static final int MAX_VARLONG_BYTES = 10;
+    static final int MAX_HEADER_BYTES = 2 + 8 + 5 + 5 + MAX_VARLONG_BYTES + 5 + 5;
+
+    private static final long MAX_WINDOW = 1L << 30; // Archives are mapped a gigabyte at a time
+    private static final Input[] INPUTS = Input.values();
+
+    private Replay() {
+    }
+
+    // Plays the replay at the buffer's position through the engine as fast as events allow and leaves the
+    // position after it. The listener, if any, sees the whole session including every game over and reset
+    public static Grid play(ByteBuffer buffer, GridListener listener) {
+        checkVersion(buffer);
+        int generator = buffer.get() & 0xFF;
+        long seed = buffer.getLong();
+        int rows = (int) getVarLong(buffer);
+        int startingLevel = (int) getVarLong(buffer);
+        long endTick = getVarLong(buffer);
+        int eventCount = (int) getVarLong(buffer);
+        getVarLong(buffer); // Byte length, only needed to skip replays
+
+        Grid grid = new Grid(rows, startingLevel, PieceGenerator.create(generator, seed));
+        if (listener != null)
+            grid.addListener(listener);
+        HeadlessSimulation simulation = new HeadlessSimulation(grid, true);
+
+        long tick = 0;
+        for (int i = 0; i < eventCount; i++) {
+            long event = getVarLong(buffer);
+            tick += event >>> CODE_BITS;
+            simulation.runUntil(tick);
+
+            int code = (int) event & CODE_MASK;
+            if (code == RESET) {
+                grid.reset();
+            } else {
+                grid.apply(INPUTS[code]);
+            }
+        }
+        simulation.runUntil(endTick);
+        return grid;
+    }
+
+    public static Grid play(ByteBuffer buffer) {
+        return play(buffer, null);
+    }
+
+    public static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // Decodes every replay in an archive into the visitor without playing them, returns the number of replays
+    // The archive is mapped in windows so it can be larger than a single mapping allows
+    public static long scan(Path archive, ReplayVisitor visitor) throws IOException {
+        long replays = 0;
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long window = Math.min(size - position, MAX_WINDOW);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+                boolean lastWindow = position + window == size;
+
+                int scanned = 0;
+                while (buffer.hasRemaining() && scanOne(buffer, visitor, lastWindow)) {
+                    scanned = buffer.position();
+                    replays++;
+                }
+                if (scanned == 0 && buffer.hasRemaining())
+                    throw new IOException("Replay at " + position + " is corrupt or larger than " + MAX_WINDOW);
+                position += scanned;
+            }
+        }
+        return replays;
+    }
+
+    // Returns false, with the position back at the start, when the replay runs past the end of the window
+    private static boolean scanOne(ByteBuffer buffer, ReplayVisitor visitor, boolean lastWindow) throws IOException {
+        int start = buffer.position();
+        int generator;
+        long seed;
+        int rows;
+        int startingLevel;
+        long endTick;
+        int eventCount;
+        int length;
+        try {
+            checkVersion(buffer);
+            generator = buffer.get() & 0xFF;
+            seed = buffer.getLong();
+            rows = (int) getVarLong(buffer);
+            startingLevel = (int) getVarLong(buffer);
+            endTick = getVarLong(buffer);
+            eventCount = (int) getVarLong(buffer);
+            length = (int) getVarLong(buffer);
+        } catch (BufferUnderflowException e) {
+            if (lastWindow)
+                throw new IOException("Truncated replay header at " + start);
+            buffer.position(start);
+            return false;
+        }
+        if (length > buffer.remaining()) {
+            if (lastWindow)
+                throw new IOException("Truncated replay at " + start);
+            buffer.position(start);
+            return false;
+        }
+
+        visitor.replay(generator, seed, rows, startingLevel, endTick);
+        long tick = 0;
+        for (int i = 0; i < eventCount; i++) {
+            long event = getVarLong(buffer);
+            tick += event >>> CODE_BITS;
+            visitor.event(tick, (int) event & CODE_MASK);
+        }
+        return true;
+    }
+
+    private static void checkVersion(ByteBuffer buffer) {
+        int version = buffer.get();
+        if (version != VERSION)
+            throw new IllegalStateException("Unsupported replay version " + version);
+    }
+
+    static void writeHeader(ByteBuffer buffer, int generator, long seed, int rows, int startingLevel, long endTick,
+            int eventCount, int length) {
+        buffer.put((byte) VERSION);
+        buffer.put((byte) generator);
+        buffer.putLong(seed);
+        putVarLong(buffer, rows);
+        putVarLong(buffer, startingLevel);
+        putVarLong(buffer, endTick);
+        putVarLong(buffer, eventCount);
+        putVarLong(buffer, length);
+    }
+
+    // Unsigned LEB128, seven bits per byte with the top bit set on every byte but the last
+    static int putVarLong(byte[] bytes, int index, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[index++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        bytes[index++] = (byte) value;
+        return index;
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+// Records every input that changes a Grid and every reset, stamped with the tick it happened after. Blocked
+// inputs change nothing and are never reported, so a key held against a wall adds nothing to the replay
+// Events are kept encoded in memory (one or two bytes each for normal play) until the replay is written
+public class ReplayRecorder implements GridListener {
+    private final int generator;
+    private final long seed;
+    private final int rows;
+    private final int startingLevel;
+    private final LongSupplier clock; // Ticks run so far, read on the thread driving the Grid
+
+    private byte[] events = new byte[4096];
+    private int length;
+    private int eventCount;
+    private long lastTick;
+
+    // Must be added as a listener before the Grid has ticked or taken any input
+    ReplayRecorder(Grid grid, LongSupplier clock) {
+        this.generator = grid.getGenerator().getKind();
+        this.seed = grid.getGenerator().getSeed();
+        this.rows = grid.getRows();
+        this.startingLevel = grid.getStartingLevel();
+        this.clock = clock;
+    }
+
+    @Override
+    public void inputApplied(Grid grid, Input input) {
+        record(input.ordinal());
+    }
+
+    @Override
+    public void gameReset(Grid grid) {
+        record(Replay.RESET);
+    }
+
+    private void record(int code) {
+        long tick = clock.getAsLong();
+        if (length + Replay.MAX_VARLONG_BYTES > events.length)
+            events = Arrays.copyOf(events, events.length * 2);
+        length = Replay.putVarLong(events, length, (tick - lastTick) << Replay.CODE_BITS | code);
+        lastTick = tick;
+        eventCount++;
+    }
+
+    // The whole replay with its header, playing it runs the game up to endTick
+    public ByteBuffer toByteBuffer(long endTick) {
+        ByteBuffer buffer = ByteBuffer.allocate(Replay.MAX_HEADER_BYTES + length);
+        Replay.writeHeader(buffer, generator, seed, rows, startingLevel, Math.max(endTick, lastTick), eventCount,
+                length);
+        buffer.put(events, 0, length);
+        buffer.flip();
+        return buffer;
+    }
+
+    // Archives are replays written back to back, so appending adds one more game session
+    public void appendTo(Path archive, long endTick) throws IOException {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = toByteBuffer(endTick);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+}
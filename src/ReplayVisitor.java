@@ -0,0 +1,9 @@
+// Receives a replay archive record by record as primitives, so scanning millions of games allocates nothing
+public interface ReplayVisitor {
+    default void replay(int generator, long seed, int rows, int startingLevel, long endTick) {
+    }
+
+    // code is an Input ordinal or Replay.RESET, tick counts from the start of the replay
+    default void event(long tick, int code) {
+    }
+}
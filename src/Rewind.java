@@ -0,0 +1,120 @@
+import java.util.function.LongSupplier;
+
+// Keeps a checkpoint of the Grid at every spawned piece so play can be stepped back by pieces or by ticks
+// History is a ring of at most MAX_ENTRIES checkpoints, older ones are dropped first, as are any older than
+// MAX_AGE ticks. Checkpoints share unchanged rows, so each one costs two references per row of the stack plus
+// the rows its placement changed, never the empty rows above the stack or a copy of the column stats
+public class Rewind implements GridListener {
+    private final Grid grid;
+    private final LongSupplier clock; // Ticks run so far, read on the thread driving the Grid
+    private final int MAX_ENTRIES;
+    private final long MAX_AGE; // 0 or less keeps entries until MAX_ENTRIES pushes them out
+
+    private final GridCheckpoint[] checkpoints;
+    private final long[] ticks;
+    private int oldest;
+    private int size;
+
+    // Adds itself as a listener and takes the first checkpoint from the game as it is now
+    Rewind(Grid grid, LongSupplier clock, int maxEntries, long maxAge) {
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("Rewind needs room for at least one entry");
+        this.grid = grid;
+        this.clock = clock;
+        this.MAX_ENTRIES = maxEntries;
+        this.MAX_AGE = maxAge;
+        this.checkpoints = new GridCheckpoint[maxEntries];
+        this.ticks = new long[maxEntries];
+
+        grid.addListener(this);
+        record();
+    }
+
+    @Override
+    public void pieceSpawned(Grid grid, Tetromino tetromino) {
+        record();
+    }
+
+    @Override
+    public void gameReset(Grid grid) {
+        clear();
+        record();
+    }
+
+    private void record() {
+        long now = clock.getAsLong();
+        if (size == MAX_ENTRIES)
+            dropOldest();
+        int slot = index(size);
+        checkpoints[slot] = grid.checkpoint();
+        ticks[slot] = now;
+        size++;
+
+        while (MAX_AGE > 0 && size > 1 && now - ticks[oldest] > MAX_AGE) {
+            dropOldest();
+        }
+    }
+
+    // Back to the start of the given number of pieces ago, 1 being the piece in play (or the one that topped
+    // out). Stops at the oldest entry still kept and returns how many pieces it actually went back
+    public int rewindPieces(int pieces) {
+        if (pieces < 1 || size == 0)
+            return 0;
+        int back = Math.min(pieces, size);
+        restore(size - back);
+        return back;
+    }
+
+    // Back to the last piece that spawned at least the given number of ticks ago, or the oldest entry kept
+    // Returns the tick the restored checkpoint was taken at, or -1 when there is nothing to go back to
+    public long rewindTicks(long ticksBack) {
+        if (size == 0)
+            return -1;
+        long target = clock.getAsLong() - ticksBack;
+        int entry = size - 1;
+        while (entry > 0 && ticks[index(entry)] > target) {
+            entry--;
+        }
+        restore(entry);
+        return ticks[index(entry)];
+    }
+
+    // The restored entry stays as the newest, everything after it is forgotten
+    private void restore(int entry) {
+        grid.restore(checkpoints[index(entry)]);
+        for (int i = entry + 1; i < size; i++) {
+            checkpoints[index(i)] = null;
+        }
+        size = entry + 1;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            checkpoints[index(i)] = null;
+        }
+        oldest = 0;
+        size = 0;
+    }
+
+    private void dropOldest() {
+        checkpoints[oldest] = null;
+        oldest = index(1);
+        size--;
+    }
+
+    private int index(int entry) {
+        int i = oldest + entry;
+        return i >= MAX_ENTRIES ? i - MAX_ENTRIES : i;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // 1 is the newest checkpoint, getSize() the oldest kept
+    public GridCheckpoint getCheckpoint(int piecesAgo) {
+        if (piecesAgo < 1 || piecesAgo > size)
+            throw new IllegalArgumentException("No checkpoint " + piecesAgo + " pieces ago, " + size + " are kept");
+        return checkpoints[index(size - piecesAgo)];
+    }
+}
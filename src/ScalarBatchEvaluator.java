@@ -0,0 +1,34 @@
+// One board at a time, for when the Vector API is not available
+public class ScalarBatchEvaluator implements BatchEvaluator {
+    @Override
+    public void computeFeatures(BoardBatch batch) {
+        int columns = batch.getColumns();
+        int wall = batch.getHeight();
+        int[] heights = batch.heights;
+        int[] holes = batch.holes;
+        for (int b = 0; b < batch.size(); b++) {
+            int first = b / BoardBatch.LANES * columns * BoardBatch.LANES + b % BoardBatch.LANES;
+            int aggregateHeight = 0;
+            int totalHoles = 0;
+            int bumpiness = 0;
+            int wells = 0;
+
+            int left = wall;
+            int height = heights[first];
+            for (int c = 0, i = first; c < columns; c++, i += BoardBatch.LANES) {
+                int right = c + 1 < columns ? heights[i + BoardBatch.LANES] : wall;
+                aggregateHeight += height;
+                totalHoles += holes[i];
+                if (c + 1 < columns)
+                    bumpiness += Math.abs(height - right);
+                wells += Math.max(Math.min(left, right) - height, 0);
+                left = height;
+                height = right;
+            }
+            batch.aggregateHeight[b] = aggregateHeight;
+            batch.totalHoles[b] = totalHoles;
+            batch.bumpiness[b] = bumpiness;
+            batch.wells[b] = wells;
+        }
+    }
+}
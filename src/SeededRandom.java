@@ -0,0 +1,33 @@
+// SplitMix64, small and unsynchronized, each generator owns one so games never share random state
+// The whole state is one long, so it can be saved and restored exactly
+public class SeededRandom {
+    private long state;
+
+    SeededRandom(long seed) {
+        this.state = seed;
+    }
+
+    public long nextLong() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public int nextInt(int bound) {
+        // Multiply and shift the top 32 bits into range instead of using a slow modulo
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+}
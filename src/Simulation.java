@@ -0,0 +1,180 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+// Runs the Grid on its own thread. Only this thread touches the Grid, the EDT sends timestamped key events in
+// through a lock-free queue and reads the state back through triple-buffered render snapshots
+public class Simulation implements Runnable {
+    private final Grid grid;
+    private final Controller controller;
+
+    // Grid gravity and lock delay count ticks, the default rate is the one they were tuned for
+    public static final int DEFAULT_TICK_RATE = 200;
+    private static final long MAX_CATCH_UP_NANOS = 100_000_000L;
+
+    private final long TICK_NANOS;
+    private final int MAX_CATCH_UP_TICKS; // Ticks run back to back before the rest of a backlog is dropped
+    private volatile long skippedTicks; // Written by the simulation thread only
+    private volatile long droppedInputs; // Written by the thread sending key events only
+    private long ticks; // Ticks run since the start, replays are stamped with it
+    private volatile boolean running = false;
+    private Thread thread;
+
+    private final InputQueue inputs = new InputQueue(256);
+    private final AtomicBoolean resetRequested = new AtomicBoolean();
+    private final TripleBuffer<RenderSnapshot> snapshots;
+    private BotPlayer bot; // When set it plays instead of the keyboard, only reset requests still get through
+
+    Simulation(Grid grid) {
+        this(grid, Controller.DEFAULT_DAS, Controller.DEFAULT_ARR);
+    }
+
+    Simulation(Grid grid, long das, long arr) {
+        this(grid, das, arr, DEFAULT_TICK_RATE);
+    }
+
+    Simulation(Grid grid, long das, long arr, int tickRate) {
+        this(grid, das, arr, tickRate, grid.getRows(), grid.getColumns());
+    }
+
+    // Snapshots only copy a viewport of this many rows and columns, the whole board unless it is bigger
+    Simulation(Grid grid, long das, long arr, int tickRate, int viewRows, int viewColumns) {
+        this.grid = grid;
+        this.TICK_NANOS = 1_000_000_000L / tickRate;
+        this.MAX_CATCH_UP_TICKS = (int) Math.max(MAX_CATCH_UP_NANOS / TICK_NANOS, 1);
+        this.controller = new Controller(grid, das, arr, Controller.DEFAULT_SOFT_DROP);
+        this.snapshots = new TripleBuffer<>(new RenderSnapshot(grid, viewRows, viewColumns),
+                new RenderSnapshot(grid, viewRows, viewColumns), new RenderSnapshot(grid, viewRows, viewColumns));
+        publishSnapshot();
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this, "Simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Waits for the simulation thread to finish its current step, after which the Grid can be read safely
+    public void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime();
+        grid.tick();
+        ticks++;
+
+        while (running) {
+            long now = System.nanoTime();
+
+            // Key events and auto repeats stamped before a tick are applied before it, in time order
+            for (int run = 0; nextTick <= now; run++) {
+                if (run == MAX_CATCH_UP_TICKS) {
+                    // Stalled too long, e.g. a long GC pause. Running the whole backlog would only fall further
+                    // behind, so the game loses the missing time instead
+                    long behind = (now - nextTick) / TICK_NANOS + 1;
+                    skippedTicks += behind;
+                    nextTick += behind * TICK_NANOS;
+                    break;
+                }
+                processInputs(nextTick);
+                grid.tick(); // Process one tick.
+                ticks++;
+                nextTick += TICK_NANOS;
+            }
+            processInputs(now); // Anything newer is applied now rather than waiting for the next tick
+
+            publishSnapshot();
+
+            LockSupport.parkNanos(Math.min(nextTick, controller.getNextRepeatTime()) - System.nanoTime());
+            if (Thread.interrupted())
+                return;
+        }
+    }
+
+    private void processInputs(long until) {
+        if (resetRequested.getAndSet(false) && grid.isGameOver()) {
+            System.out.println("Restarting");
+            grid.reset();
+            controller.reset();
+        }
+
+        while (!inputs.isEmpty() && inputs.peekTime() < until) {
+            if (bot == null)
+                controller.handle(inputs.peekCode(), inputs.peekTime());
+            inputs.remove();
+        }
+        if (bot == null) {
+            controller.advanceTo(until);
+        } else {
+            bot.update(grid);
+        }
+    }
+
+    public void publishSnapshot() {
+        snapshots.getBack().capture(grid);
+        snapshots.publish();
+    }
+
+    // Only one thread may send key events, normally the EDT
+    public void keyPressed(Input input) {
+        offer(input, true);
+    }
+
+    public void keyReleased(Input input) {
+        offer(input, false);
+    }
+
+    private void offer(Input input, boolean pressed) {
+        if (!inputs.offer(System.nanoTime(), InputQueue.encode(input, pressed)))
+            droppedInputs++;
+    }
+
+    // Must be set before start
+    public void setBot(BotPlayer bot) {
+        this.bot = bot;
+    }
+
+    public BotPlayer getBot() {
+        return bot;
+    }
+
+    public void requestReset() {
+        resetRequested.set(true);
+    }
+
+    // Only the rendering thread may call this, it owns the front buffer
+    public RenderSnapshot getSnapshot() {
+        return snapshots.getFront();
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public long getTickNanos() {
+        return TICK_NANOS;
+    }
+
+    // Simulation thread only, or after stop
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    // Key events lost to a full input queue, the simulation thread fell that far behind
+    public long getDroppedInputs() {
+        return droppedInputs;
+    }
+}
@@ -1,217 +1,147 @@
-
-import java.awt.Color;
-import java.awt.Point;
+import java.nio.ByteBuffer;
 
 public class Tetromino {
 
-    private Point[] points;
-    private TetrominoType type;
-    private Color color;
-    private char character;
-    private int[] offsetFromOrigin; // Tracks displacement from 0, 0 so that the rotation transformations can be applied
+    // A piece is its type, rotation state and the board position of its rotate origin
+    // Cell positions come from the precomputed offset tables in TetrominoType, so moving never allocates
+    private final TetrominoType type;
+    private int rotation; // Number of clockwise turns from the spawn orientation, 0-3
+    private int row;
+    private int column;
     private int lockTimer;
 
     Tetromino(TetrominoType type) {
         this.type = type;
-        this.points = type.getShape();
-        this.color = type.getColor();
-        this.character = type.getCharacter();
-        this.offsetFromOrigin = type.getRotateOrigin().clone();
+        this.row = type.getRotateOrigin()[1];
+        this.column = type.getRotateOrigin()[0];
         this.lockTimer = -1;
     }
 
     Tetromino(TetrominoType type, int column, int row) {
-        this.type = type;
-        this.points = type.getShape();
-        this.color = type.getColor();
-        this.character = type.getCharacter();
-        this.offsetFromOrigin = type.getRotateOrigin().clone();
-        this.lockTimer = -1;
-
-        for (int i = 0; i < column; i++) {
-            this.moveSide(true);
-        }
-
-        for (int i = 0; i < row; i++) {
-            this.moveDown();
-        }
+        this(type);
+        this.column += column;
+        this.row += row;
     }
 
     Tetromino(int typeIndex, int column, int row) {
-        TetrominoType[] types = TetrominoType.values();
-
-        this.type = types[typeIndex];
-        this.points = type.getShape().clone();
-        this.color = type.getColor();
-        this.character = type.getCharacter();
-        this.offsetFromOrigin = type.getRotateOrigin().clone();
-        this.lockTimer = -1;
+        this(TetrominoType.values()[typeIndex], column, row);
+    }
 
-        for (int i = 0; i < column; i++) {
-            this.moveSide(true);
-        }
+    // Type and rotation bytes, then row, column and lock timer as ints
+    public static final int SNAPSHOT_SIZE = 14;
 
-        for (int i = 0; i < row; i++) {
-            this.moveDown();
-        }
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put((byte) type.ordinal());
+        buffer.put((byte) rotation);
+        buffer.putInt(row);
+        buffer.putInt(column);
+        buffer.putInt(lockTimer);
+    }
 
+    public static Tetromino readFrom(ByteBuffer buffer) {
+        Tetromino tetromino = new Tetromino(TetrominoType.values()[buffer.get()]);
+        tetromino.rotation = buffer.get();
+        tetromino.row = buffer.getInt();
+        tetromino.column = buffer.getInt();
+        tetromino.lockTimer = buffer.getInt();
+        return tetromino;
     }
 
     public void moveDown() {
-        Point[] newShape = new Point[points.length];
-        for (int i = 0; i < points.length; i++) {
-            newShape[i] = new Point(points[i].x + 1, points[i].y);
-        }
-        offsetFromOrigin[1]++;
-        points = newShape;
+        row++;
     }
 
     public void moveUp() {
-        Point[] newShape = new Point[points.length];
-        for (int i = 0; i < points.length; i++) {
-            newShape[i] = new Point(points[i].x - 1, points[i].y);
-        }
-        offsetFromOrigin[1]--;
-        points = newShape;
+        row--;
     }
 
-    public boolean canMoveDown(char[][] board) {
-        for (Point point : points) {
-            try {
-                if (board[point.x + 1][point.y] != 0) {
-                    return false;
-                }
-            } catch (ArrayIndexOutOfBoundsException e) {
-                return false;
-            }
-
-        }
-
-        return true;
+    public boolean canMoveDown(Bitboard board) {
+        return board.fits(type, rotation, row + 1, column);
     }
 
     public void moveSide(boolean rightSide) {
-        // Didn't want to duplicate code for smth simple so both sides
-        // are handled in here with a ternary with rightSide boolean
-        Point[] newShape = new Point[points.length];
-        for (int i = 0; i < points.length; i++) {
-            newShape[i] = new Point(points[i].x, points[i].y + (rightSide ? 1 : -1));
-        }
-
-        offsetFromOrigin[0] = offsetFromOrigin[0] + (rightSide ? 1 : -1);
-        points = newShape;
+        column += rightSide ? 1 : -1;
     }
 
-    public boolean canMoveSide(char[][] board, boolean rightSide) {
-        for (Point point : points) {
-            try {
-                int pieceX = point.x;
-                int pieceY = point.y;
-                if (board[pieceX][pieceY + (rightSide ? 1 : -1)] != 0) {
-                    return false;
-                }
-            } catch (ArrayIndexOutOfBoundsException e) {
-                return false;
-            }
-        }
-
-        return true;
+    public boolean canMoveSide(Bitboard board, boolean rightSide) {
+        return board.fits(type, rotation, row, column + (rightSide ? 1 : -1));
     }
 
     public void rotate(boolean counterClockwise) {
-        points = removeOffset(points); // Bring pieces relative to 0,0
-        points = rotatePoints(points, counterClockwise); // Apply CW 90 degrees transformation
-        points = returnOffset(points); // Bring pieces back to where they were
+        rotation = nextRotation(counterClockwise);
     }
 
-    public void drop(char[][] board) {
-        while (canMoveDown(board)) {
-            moveDown();
-        }
+    public void drop(Bitboard board) {
+        row += board.dropDistance(type, rotation, row, column);
     }
 
-    public boolean canRotate(char[][] board, boolean counterClockwise) {
+    public boolean fits(Bitboard board) {
+        return board.fits(type, rotation, row, column);
+    }
+
+    public boolean canRotate(Bitboard board, boolean counterClockwise) {
         if (!getType().isRotatable())
             return false;
 
-        Point[] tempPoints = new Point[points.length];
-
-        for (int i = 0; i < points.length; i++) {
-            tempPoints[i] = (Point) this.getPoints()[i].clone();
-        }
-
-        tempPoints = removeOffset(tempPoints);
-        tempPoints = rotatePoints(tempPoints, counterClockwise);
-        tempPoints = returnOffset(tempPoints);
+        return board.fits(type, nextRotation(counterClockwise), row, column);
+    }
 
-        try {
-            for (Point tempPoint : tempPoints) {
-                if (board[tempPoint.x][tempPoint.y] != 0) {
-                    return false;
-                }
-            }
-        } catch (ArrayIndexOutOfBoundsException e) {
-            return false;
-        }
-        return true;
+    private int nextRotation(boolean counterClockwise) {
+        return (rotation + (counterClockwise ? 3 : 1)) & 3;
     }
 
-    private Point[] removeOffset(Point[] pts) {
-        Point[] newPoints = pts.clone();
-        for (Point newPoint : newPoints) {
-            newPoint.translate(-offsetFromOrigin[1], -offsetFromOrigin[0]);
-        }
-        return newPoints;
+    public int getCellCount() {
+        return type.getRowOffsets(rotation).length;
     }
 
-    private Point[] rotatePoints(Point[] pts, boolean counterClockwise) {
-        Point[] newPoints = new Point[points.length];
-        for (int i = 0; i < pts.length; i++) {
-            newPoints[i] = new Point(pts[i].y * (counterClockwise ? -1 : 1), pts[i].x * (counterClockwise ? 1 : -1));
-        }
-        return newPoints;
+    public int getCellRow(int cell) {
+        return row + type.getRowOffsets(rotation)[cell];
     }
 
-    private Point[] returnOffset(Point[] pts) {
-        Point[] newPoints = pts.clone();
-        for (Point newPoint : newPoints) {
-            newPoint.translate(offsetFromOrigin[1], offsetFromOrigin[0]);
-        }
-        return newPoints;
+    public int getCellColumn(int cell) {
+        return column + type.getColumnOffsets(rotation)[cell];
     }
 
-    public Point[] getPoints() {
-        return points;
+    public TetrominoType getType() {
+        return type;
     }
 
-    public void setPoints(Point[] shape) {
-        this.points = shape;
+    public int getRow() {
+        return row;
     }
 
-    public TetrominoType getType() {
-        return type;
+    public int getColumn() {
+        return column;
     }
 
-    public Color getColor() {
-        return color;
+    public int getTopRow() {
+        return row + type.getMinRow(rotation);
     }
 
-    public void setColor(Color color) {
-        this.color = color;
+    public int getBottomRow() {
+        return getTopRow() + type.getRowMasks(rotation).length - 1;
     }
 
-    public char getCharacter() {
-        return character;
+    public int getRotation() {
+        return rotation;
     }
 
     public int getLockTimer() { return lockTimer; }
 
     public void setLockTimer(int lockTimer) { this.lockTimer = lockTimer; }
 
+    // Same as getCopy but keeps the lock timer, for saving the piece in play
+    public Tetromino getExactCopy() {
+        Tetromino tetromino = getCopy();
+        tetromino.lockTimer = this.lockTimer;
+        return tetromino;
+    }
+
     public Tetromino getCopy() {
         Tetromino tetromino = new Tetromino(this.type);
-        tetromino.points = this.points.clone();
-        tetromino.offsetFromOrigin = this.offsetFromOrigin.clone();
+        tetromino.rotation = this.rotation;
+        tetromino.row = this.row;
+        tetromino.column = this.column;
         return tetromino;
     }
 }
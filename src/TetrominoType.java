@@ -1,56 +1,103 @@
-import java.awt.Color;
-import java.awt.Point;
+import java.util.Arrays;
 
 public enum TetrominoType {
-    // Points are (row, column) with 0,0 being in the top left corner
-    I(new Point[] { new Point(0, 0), new Point(0, 1), new Point(0, 2), new Point(0, 3) }, new Color(0, 240, 240), 'I', true, new int[] { 1, 0 }),
-    J(new Point[] { new Point(0, 0), new Point(1, 0), new Point(1, 1), new Point(1, 2) }, new Color(0, 0, 240), 'J', true),
-    L(new Point[] { new Point(0, 2), new Point(1, 0), new Point(1, 1), new Point(1, 2) }, new Color(240, 160, 0), 'L', true),
-    O(new Point[] { new Point(0, 0), new Point(0, 1), new Point(1, 0), new Point(1, 1) }, new Color(240, 240, 0), 'O', false),
-    S(new Point[] { new Point(0, 1), new Point(0, 2), new Point(1, 0), new Point(1, 1) }, new Color(0, 240, 0), 'S', true),
-    T(new Point[] { new Point(0, 1), new Point(1, 0), new Point(1, 1), new Point(1, 2) }, new Color(160, 0, 240), 'T', true),
-    Z(new Point[] { new Point(0, 0), new Point(0, 1), new Point(1, 1), new Point(1, 2) }, new Color(240, 0, 0), 'Z', true);
-
-    private final Point[] shape;
-    private final Color color;
+    // Cells are { row, column } with 0,0 being in the top left corner
+    I(new int[][] { { 0, 0 }, { 0, 1 }, { 0, 2 }, { 0, 3 } }, 'I', true, new int[] { 1, 0 }),
+    J(new int[][] { { 0, 0 }, { 1, 0 }, { 1, 1 }, { 1, 2 } }, 'J', true),
+    L(new int[][] { { 0, 2 }, { 1, 0 }, { 1, 1 }, { 1, 2 } }, 'L', true),
+    O(new int[][] { { 0, 0 }, { 0, 1 }, { 1, 0 }, { 1, 1 } }, 'O', false),
+    S(new int[][] { { 0, 1 }, { 0, 2 }, { 1, 0 }, { 1, 1 } }, 'S', true),
+    T(new int[][] { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, 2 } }, 'T', true),
+    Z(new int[][] { { 0, 0 }, { 0, 1 }, { 1, 1 }, { 1, 2 } }, 'Z', true);
+
+    private final int[][] shape;
     private final char character;
     private final int[] rotateOrigin; // The rotate origin is the point which the tetrominos will rotate around
     private final boolean rotatable;
 
-    TetrominoType(Point[] shape, Color color, char character, boolean canRotate, int[] rotateOrigin) {
+    // Cell offsets from the rotate origin for each of the 4 rotation states, index is clockwise turns from spawn
+    private final int[][] rowOffsets = new int[4][];
+    private final int[][] columnOffsets = new int[4][];
+
+    // Collision masks for each rotation state, one int per occupied row of the piece
+    // Bit 0 of a mask is the leftmost column of the piece, rows and columns are relative to the rotate origin
+    private final int[][] rowMasks = new int[4][];
+    private final int[] minRow = new int[4];
+    private final int[] maxRow = new int[4];
+    private final int[] minColumn = new int[4];
+    // Lowest row offset in each column of the piece, starting at minColumn, used to find drop distance
+    private final int[][] columnBottoms = new int[4][];
+    // Lowest rotation state with the same cells, e.g. 0 for an I piece turned twice. Two states cover the same
+    // board cells when they share a canonical rotation and the top left of their bounding box
+    private final int[] canonicalRotation = new int[4];
+
+    TetrominoType(int[][] shape, char character, boolean canRotate, int[] rotateOrigin) {
         this.shape = shape;
-        this.color = color;
         this.character = character;
         this.rotateOrigin = rotateOrigin;
         this.rotatable = canRotate;
+        buildRotationStates();
     }
 
-    TetrominoType(Point[] shape, Color color, char character, boolean canRotate) {
-        this.shape = shape;
-        this.color = color;
-        this.character = character;
-        this.rotateOrigin = new int[] { 1, 1 }; // If no offset the constructor will default to 1, 1
-        this.rotatable = canRotate;
+    TetrominoType(int[][] shape, char character, boolean canRotate) {
+        this(shape, character, canRotate, new int[] { 1, 1 }); // If no offset the constructor will default to 1, 1
     }
 
-    public static Color getColor(char typeChar) {
-        for (int i = 0; i < TetrominoType.values().length; i++) {
-            if (TetrominoType.values()[i].character == typeChar) {
-                return TetrominoType.values()[i].color;
+    private void buildRotationStates() {
+        int[] rows = new int[shape.length];
+        int[] columns = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            rows[i] = shape[i][0] - rotateOrigin[1];
+            columns[i] = shape[i][1] - rotateOrigin[0];
+        }
+
+        for (int rotation = 0; rotation < 4; rotation++) {
+            int top = Integer.MAX_VALUE, bottom = Integer.MIN_VALUE, left = Integer.MAX_VALUE, right = Integer.MIN_VALUE;
+            for (int i = 0; i < rows.length; i++) {
+                top = Math.min(top, rows[i]);
+                bottom = Math.max(bottom, rows[i]);
+                left = Math.min(left, columns[i]);
+                right = Math.max(right, columns[i]);
+            }
+
+            int[] bottoms = new int[right - left + 1];
+            Arrays.fill(bottoms, Integer.MIN_VALUE);
+            for (int i = 0; i < rows.length; i++) {
+                bottoms[columns[i] - left] = Math.max(bottoms[columns[i] - left], rows[i]);
+            }
+            columnBottoms[rotation] = bottoms;
+
+            int[] masks = new int[bottom - top + 1];
+            for (int i = 0; i < rows.length; i++) {
+                masks[rows[i] - top] |= 1 << (columns[i] - left);
+            }
+            rowOffsets[rotation] = rows.clone();
+            columnOffsets[rotation] = columns.clone();
+            rowMasks[rotation] = masks;
+            minRow[rotation] = top;
+            maxRow[rotation] = bottom;
+            minColumn[rotation] = left;
+            canonicalRotation[rotation] = rotation;
+            for (int r = 0; r < rotation; r++) {
+                if (Arrays.equals(rowMasks[r], masks) && columnBottoms[r].length == bottoms.length) {
+                    canonicalRotation[rotation] = r;
+                    break;
+                }
+            }
+
+            // Same clockwise transformation Tetromino applies, (row, column) -> (column, -row)
+            for (int i = 0; i < rows.length; i++) {
+                int row = rows[i];
+                rows[i] = columns[i];
+                columns[i] = -row;
             }
         }
-        System.out.println("COLOR NOT FOUND");
-        return Color.WHITE;
     }
 
-    public Point[] getShape() {
+    public int[][] getShape() {
         return shape;
     }
 
-    public Color getColor() {
-        return color;
-    }
-
     public char getCharacter() {
         return character;
     }
@@ -63,4 +110,36 @@ public enum TetrominoType {
         return rotatable;
     }
 
+    public int[] getRowOffsets(int rotation) {
+        return rowOffsets[rotation];
+    }
+
+    public int[] getColumnOffsets(int rotation) {
+        return columnOffsets[rotation];
+    }
+
+    public int[] getRowMasks(int rotation) {
+        return rowMasks[rotation];
+    }
+
+    public int getMinRow(int rotation) {
+        return minRow[rotation];
+    }
+
+    public int getMaxRow(int rotation) {
+        return maxRow[rotation];
+    }
+
+    public int getCanonicalRotation(int rotation) {
+        return canonicalRotation[rotation];
+    }
+
+    public int getMinColumn(int rotation) {
+        return minColumn[rotation];
+    }
+
+    public int[] getColumnBottoms(int rotation) {
+        return columnBottoms[rotation];
+    }
+
 }
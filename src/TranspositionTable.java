@@ -0,0 +1,76 @@
+import java.util.Arrays;
+
+// Fixed size cache of search results keyed by Zobrist hash, shared by every thread of a search without locks
+//
+// Each entry is three plain longs: the key XORed with the other two, the value and a word holding the depth
+// and generation. Racing writers can interleave their words, but a torn entry no longer XORs back to its key,
+// so a probe sees a miss instead of a wrong value (Hyatt and Mann's lockless hashing)
+//
+// Buckets hold two entries. The first keeps whichever result took the most work to find, unless it is from an
+// older generation, and the second always takes the latest result, so deep results survive a flood of shallow
+// ones without going stale forever
+public class TranspositionTable {
+    private static final int SLOTS = 2;
+    private static final long USED = 1L << 16; // In every stored meta, an empty entry checks as key 0 otherwise
+
+    private final long[] checks;
+    private final long[] values;
+    private final long[] metas; // depth | generation << 8 | USED
+    private final int MASK; // Bucket index mask
+    private int generation; // Written by the owner between searches, read racily by workers
+
+    // 2^sizeLog2 entries, 24 bytes each
+    TranspositionTable(int sizeLog2) {
+        int entries = 1 << sizeLog2;
+        checks = new long[entries];
+        values = new long[entries];
+        metas = new long[entries];
+        MASK = entries / SLOTS - 1;
+    }
+
+    // Marks everything stored so far as old, call once per decision
+    public void newGeneration() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    // NaN when the key is not stored
+    public double probe(long key) {
+        int bucket = bucket(key);
+        for (int i = bucket; i < bucket + SLOTS; i++) {
+            long value = values[i];
+            long meta = metas[i];
+            if ((checks[i] ^ value ^ meta) == key && (meta & USED) != 0)
+                return Double.longBitsToDouble(value);
+        }
+        return Double.NaN;
+    }
+
+    // Depth is how much search the value stands for, deeper results are kept in preference
+    public void store(long key, int depth, double value) {
+        int bucket = bucket(key);
+        long meta = depth & 0xFF | (long) generation << 8 | USED;
+        long bits = Double.doubleToRawLongBits(value);
+
+        long storedMeta = metas[bucket];
+        boolean sameKey = (checks[bucket] ^ values[bucket] ^ storedMeta) == key && (storedMeta & USED) != 0;
+        boolean stale = (storedMeta >>> 8 & 0xFF) != generation;
+        int slot = sameKey || depth >= (storedMeta & 0xFF) || stale ? bucket : bucket + 1;
+        values[slot] = bits;
+        metas[slot] = meta;
+        checks[slot] = key ^ bits ^ meta;
+    }
+
+    public void clear() {
+        Arrays.fill(checks, 0);
+        Arrays.fill(values, 0);
+        Arrays.fill(metas, 0);
+    }
+
+    private int bucket(long key) {
+        return ((int) (key ^ key >>> 32) & MASK) * SLOTS;
+    }
+
+    public int getCapacity() {
+        return checks.length;
+    }
+}
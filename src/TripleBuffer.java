@@ -0,0 +1,34 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Lock-free handoff of the latest value from one producer thread to one consumer thread
+// The producer fills the back buffer and publishes it, the consumer always reads the newest published buffer
+// Neither side ever waits and the three buffers are reused, so nothing is allocated per handoff
+public class TripleBuffer<T> {
+    private static final int INDEX = 3;
+    private static final int FRESH = 4; // Set when the middle buffer was published and not yet taken
+
+    private final Object[] buffers;
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 2; // Producer only
+    private int front = 0; // Consumer only
+
+    TripleBuffer(T first, T second, T third) {
+        buffers = new Object[] { first, second, third };
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+        return (T) buffers[back];
+    }
+
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getFront() {
+        if ((middle.get() & FRESH) != 0)
+            front = middle.getAndSet(front) & INDEX;
+        return (T) buffers[front];
+    }
+}
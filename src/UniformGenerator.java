@@ -0,0 +1,39 @@
+import java.nio.ByteBuffer;
+
+// Every piece is picked independently with equal odds
+public class UniformGenerator implements PieceGenerator {
+    private static final TetrominoType[] TYPES = TetrominoType.values();
+
+    private final SeededRandom random;
+    private final long seed;
+
+    UniformGenerator(long seed) {
+        this.random = new SeededRandom(seed);
+        this.seed = seed;
+    }
+
+    @Override
+    public TetrominoType next() {
+        return TYPES[random.nextInt(TYPES.length)];
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public int getKind() {
+        return UNIFORM;
+    }
+
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        buffer.putLong(random.getState());
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+        random.setState(buffer.getLong());
+    }
+}
@@ -0,0 +1,364 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Evolves Heuristic weights by having a one piece HeuristicBot play seeded games with each candidate, the
+// fitness of a candidate being its mean score. Each generation samples candidates around a mean from a per
+// weight spread, then moves the mean to a weighted average of the best and resizes the spreads to match
+// where the best landed, an evolution strategy like CMA-ES with a diagonal covariance
+//
+// Every candidate of a generation plays the same seeds, so they are compared on the same pieces. Games are
+// played in rounds across the pool, and after each round the candidates scoring well below the ones that
+// would be kept stop playing. The state is checkpointed after every generation, so a run can be stopped at
+// any time and resumed, and resumes the same generations it would have played
+public class WeightTuner {
+    public static final int VERSION = 2; // 2 records the settings the run was started with
+
+    private static final int ROUNDS = 4; // Culls happen between rounds of a generation's games
+    private static final double CULL = 0.5; // Fraction of the last kept candidate's mean a candidate must reach
+    private static final double LEARNING_RATE = 0.3; // How far the spreads move toward the best's spread
+    private static final double INITIAL_SPREAD = 0.2;
+    private static final double MIN_SPREAD = 0.005; // Keeps every weight exploring a little
+
+    private final int POPULATION;
+    private final int GAMES; // Per candidate per generation
+    private final int MAX_PIECES; // Per game, good candidates would otherwise never top out
+    private final int ROWS;
+    private final ForkJoinPool pool;
+
+    private long seed;
+    private int generation;
+    private double[] mean;
+    private double[] spread;
+    private double[] best; // Best candidate of the last generation
+    private double bestFitness;
+
+    WeightTuner(int population, int games, int maxPieces, int rows, long seed, ForkJoinPool pool) {
+        if (population < 2)
+            throw new IllegalArgumentException("A population needs at least 2 candidates to select from");
+        if (games < 1)
+            throw new IllegalArgumentException("Candidates need at least one game to be scored on");
+        Bitboard board = new Grid(rows, 1).getBoard();
+        if (!MoveGenerator.canSearch(board.getHeight(), board.getColumns()))
+            throw new IllegalArgumentException("A " + rows + " row board is too big for the bot");
+        this.POPULATION = population;
+        this.GAMES = games;
+        this.MAX_PIECES = maxPieces;
+        this.ROWS = rows;
+        this.pool = pool;
+        this.seed = seed;
+        mean = normalize(Heuristic.DEFAULT.getWeights());
+        spread = new double[Heuristic.FEATURES];
+        Arrays.fill(spread, INITIAL_SPREAD);
+        best = mean.clone();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path checkpoint;
+        int generations;
+        int population;
+        int games;
+        int maxPieces;
+        int rows;
+
+        checkpoint = Paths.get(args.length > 0 ? args[0] : "tuning.txt");
+
+        try {
+            generations = Integer.parseInt(args[1]); // Generations to reach, counting those already in the checkpoint
+        } catch (Exception e) {
+            generations = 100;
+        }
+
+        try {
+            population = Integer.parseInt(args[2]);
+        } catch (Exception e) {
+            population = 24;
+        }
+
+        try {
+            games = Integer.parseInt(args[3]);
+        } catch (Exception e) {
+            games = 32;
+        }
+
+        try {
+            maxPieces = Integer.parseInt(args[4]);
+        } catch (Exception e) {
+            maxPieces = 1000;
+        }
+
+        try {
+            rows = Integer.parseInt(args[5]);
+        } catch (Exception e) {
+            rows = 20;
+        }
+
+        WeightTuner tuner = new WeightTuner(population, games, maxPieces, rows, System.nanoTime(),
+                ForkJoinPool.commonPool());
+        if (Files.exists(checkpoint)) {
+            tuner.load(checkpoint);
+            System.out.printf("Resuming %s at generation %d%n", checkpoint, tuner.getGeneration());
+        }
+        while (tuner.getGeneration() < generations) {
+            long start = System.nanoTime();
+            int culled = tuner.step();
+            tuner.save(checkpoint);
+            System.out.printf("Generation %d: best %.0f, %d of %d culled, %.1f s, %s%n", tuner.getGeneration(),
+                    tuner.getBestFitness(), culled, population, (System.nanoTime() - start) / 1e9,
+                    new Heuristic(tuner.getBest()));
+        }
+    }
+
+    // Plays one generation and moves the search on, returns how many candidates were culled early
+    public int step() throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(seed + generation);
+        double[][] candidates = new double[POPULATION][];
+        for (int i = 0; i < POPULATION; i++) {
+            double[] candidate = new double[Heuristic.FEATURES];
+            for (int f = 0; f < candidate.length; f++) {
+                candidate[f] = mean[f] + spread[f] * gaussian(random);
+            }
+            candidates[i] = normalize(candidate);
+        }
+        long[] seeds = new long[GAMES];
+        for (int g = 0; g < GAMES; g++) {
+            seeds[g] = random.nextLong();
+        }
+
+        // Rounds of games, the candidates that fall behind after a round sit the rest out
+        int kept = Math.max(POPULATION / 4, 1);
+        double[] scores = new double[POPULATION];
+        int[] played = new int[POPULATION];
+        boolean[] culled = new boolean[POPULATION];
+        int culledCount = 0;
+        int rounds = Math.min(ROUNDS, GAMES);
+        for (int round = 0; round < rounds; round++) {
+            int from = GAMES * round / rounds;
+            int to = GAMES * (round + 1) / rounds;
+            // One task per candidate, playing the round's games with one bot
+            List<Callable<Long>> tasks = new ArrayList<>();
+            List<Integer> owners = new ArrayList<>();
+            for (int i = 0; i < POPULATION; i++) {
+                if (culled[i])
+                    continue;
+                double[] candidate = candidates[i];
+                tasks.add(() -> play(candidate, seeds, from, to));
+                owners.add(i);
+            }
+            List<Future<Long>> results = pool.invokeAll(tasks);
+            for (int t = 0; t < results.size(); t++) {
+                int i = owners.get(t);
+                try {
+                    scores[i] += results.get(t).get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("A tuning game failed", e.getCause());
+                }
+                played[i] += to - from;
+            }
+
+            if (round < rounds - 1) {
+                double[] means = new double[POPULATION];
+                for (int i = 0; i < POPULATION; i++) {
+                    means[i] = culled[i] ? Double.NEGATIVE_INFINITY : scores[i] / played[i];
+                }
+                double[] sorted = means.clone();
+                Arrays.sort(sorted); // Culled candidates sort first, the kept ones can never be culled
+                double threshold = CULL * sorted[POPULATION - kept];
+                for (int i = 0; i < POPULATION; i++) {
+                    if (!culled[i] && means[i] < threshold) {
+                        culled[i] = true;
+                        culledCount++;
+                    }
+                }
+            }
+        }
+
+        // Finished candidates rank above culled ones, which are ranked on the games they did play
+        Integer[] order = new Integer[POPULATION];
+        for (int i = 0; i < POPULATION; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> culled[a] != culled[b] ? Boolean.compare(culled[a], culled[b])
+                : Double.compare(scores[b] / played[b], scores[a] / played[a]));
+
+        // Log-rank weights over the kept candidates, the mean moves to their weighted average and each spread
+        // toward how far they were from the old mean along its weight
+        double[] recombination = new double[kept];
+        double total = 0;
+        for (int k = 0; k < kept; k++) {
+            recombination[k] = Math.log(kept + 0.5) - Math.log(k + 1);
+            total += recombination[k];
+        }
+        double[] nextMean = new double[Heuristic.FEATURES];
+        double[] variance = new double[Heuristic.FEATURES];
+        for (int k = 0; k < kept; k++) {
+            double[] candidate = candidates[order[k]];
+            for (int f = 0; f < nextMean.length; f++) {
+                double w = recombination[k] / total;
+                nextMean[f] += w * candidate[f];
+                variance[f] += w * (candidate[f] - mean[f]) * (candidate[f] - mean[f]);
+            }
+        }
+        for (int f = 0; f < spread.length; f++) {
+            double next = (1 - LEARNING_RATE) * spread[f] * spread[f] + LEARNING_RATE * variance[f];
+            spread[f] = Math.max(Math.sqrt(next), MIN_SPREAD);
+        }
+        mean = normalize(nextMean);
+        best = candidates[order[0]];
+        bestFitness = scores[order[0]] / played[order[0]];
+        generation++;
+        return culledCount;
+    }
+
+    // The total score of the games seeded by seeds[from] to seeds[to - 1], each played until it ends or
+    // MAX_PIECES are placed. One bot plays them all, so its scratch boards and generators are made once
+    private long play(double[] weights, long[] seeds, int from, int to) {
+        HeuristicBot bot = new HeuristicBot(new Heuristic(weights), 1);
+        long total = 0;
+        for (int g = from; g < to; g++) {
+            Grid grid = new Grid(ROWS, 1, PieceGenerator.create(PieceGenerator.UNIFORM, seeds[g]));
+            for (int piece = 0; piece < MAX_PIECES && !grid.isGameOver(); piece++) {
+                BotDecision decision = bot.decide(grid);
+                if (decision == null)
+                    break;
+                decision.applyTo(grid);
+            }
+            total += grid.getScore();
+        }
+        return total;
+    }
+
+    private static double gaussian(SplittableRandom random) { // Box-Muller
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    // A heuristic only ranks boards, so scaling its weights changes nothing and candidates are kept unit length
+    private static double[] normalize(double[] weights) {
+        double length = 0;
+        for (double w : weights) {
+            length += w * w;
+        }
+        length = Math.sqrt(length);
+        double[] normalized = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            normalized[i] = weights[i] / length;
+        }
+        return normalized;
+    }
+
+    // Plain text, one "name values..." line each, written to a temporary file first and moved into place so
+    // an interrupted write never leaves a broken checkpoint behind. The settings are saved too, a checkpoint
+    // only resumes the run it came from
+    public void save(Path checkpoint) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("version " + VERSION);
+        lines.add("population " + POPULATION);
+        lines.add("games " + GAMES);
+        lines.add("maxPieces " + MAX_PIECES);
+        lines.add("rows " + ROWS);
+        lines.add("seed " + seed);
+        lines.add("generation " + generation);
+        lines.add("mean " + join(mean));
+        lines.add("spread " + join(spread));
+        lines.add("best " + join(best));
+        lines.add("bestFitness " + bestFitness);
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.write(temporary, lines, StandardCharsets.UTF_8);
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void load(Path checkpoint) throws IOException {
+        for (String line : Files.readAllLines(checkpoint, StandardCharsets.UTF_8)) {
+            String[] parts = line.trim().split(" ");
+            switch (parts[0]) {
+                case "version":
+                    if (Integer.parseInt(parts[1]) != VERSION)
+                        throw new IOException("Unsupported tuning checkpoint version " + parts[1]);
+                    break;
+                case "population":
+                    checkSetting(parts, POPULATION);
+                    break;
+                case "games":
+                    checkSetting(parts, GAMES);
+                    break;
+                case "maxPieces":
+                    checkSetting(parts, MAX_PIECES);
+                    break;
+                case "rows":
+                    checkSetting(parts, ROWS);
+                    break;
+                case "seed":
+                    seed = Long.parseLong(parts[1]);
+                    break;
+                case "generation":
+                    generation = Integer.parseInt(parts[1]);
+                    break;
+                case "mean":
+                    mean = parse(parts);
+                    break;
+                case "spread":
+                    spread = parse(parts);
+                    break;
+                case "best":
+                    best = parse(parts);
+                    break;
+                case "bestFitness":
+                    bestFitness = Double.parseDouble(parts[1]);
+                    break;
+                default:
+                    break; // Blank or unknown lines are skipped
+            }
+        }
+    }
+
+    private static void checkSetting(String[] parts, int value) throws IOException {
+        if (Integer.parseInt(parts[1]) != value)
+            throw new IOException("Checkpoint was tuned with " + parts[0] + " " + parts[1] + ", not " + value
+                    + ", pass the same settings to resume it");
+    }
+
+    private static String join(double[] values) {
+        StringBuilder builder = new StringBuilder();
+        for (double value : values) {
+            builder.append(builder.length() == 0 ? "" : " ").append(value);
+        }
+        return builder.toString();
+    }
+
+    private static double[] parse(String[] parts) throws IOException {
+        if (parts.length - 1 != Heuristic.FEATURES)
+            throw new IOException("Expected " + Heuristic.FEATURES + " weights in " + parts[0]);
+        double[] values = new double[Heuristic.FEATURES];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Double.parseDouble(parts[i + 1]);
+        }
+        return values;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public double[] getMean() {
+        return mean.clone();
+    }
+
+    public double[] getBest() {
+        return best.clone();
+    }
+
+    public double getBestFitness() {
+        return bestFitness;
+    }
+}
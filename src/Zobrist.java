@@ -0,0 +1,45 @@
+// Hash keys for board and piece state. Keys are computed from their index rather than looked up in tables
+// of random numbers, so boards of any size get keys and two runs always hash the same state the same way
+public class Zobrist {
+    private static final long PIECE = 0x6A09E667F3BCC909L;
+    private static final long HELD = 0xBB67AE8584CAA73BL;
+    private static final long SEQUENCE = 0x3C6EF372FE94F82BL;
+
+    private Zobrist() {
+    }
+
+    // The splitmix64 finalizer, every input bit affects every output bit
+    public static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    // Key of one row's occupancy at one height, 0 for an empty row so empty rows cost nothing to hash
+    public static long row(int row, long[] bits, int filled) {
+        if (filled == 0)
+            return 0;
+        long key = mix(row + 0x9E3779B97F4A7C15L);
+        for (long word : bits) {
+            key = mix(key ^ word);
+        }
+        return key;
+    }
+
+    public static long piece(TetrominoType type, int rotation, int row, int column) {
+        return mix(PIECE + (((long) type.ordinal() * 4 + rotation) << 48) + ((long) row << 24) + column);
+    }
+
+    public static long held(TetrominoType type, boolean canHold) {
+        return mix(HELD + (type == null ? 0 : type.ordinal() + 1) * 2 + (canHold ? 1 : 0));
+    }
+
+    // Key of what a search still has to play: how many placements and the pieces they can use, in order
+    public static long sequence(int placements, TetrominoType held, TetrominoType[] pieces, int from, int to) {
+        long key = mix(SEQUENCE + placements * 8L + (held == null ? 0 : held.ordinal() + 1));
+        for (int i = from; i < to; i++) {
+            key = mix(key + pieces[i].ordinal() + 1);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,18 @@
+# Compiles src/ with the checks in test/ and runs every *Test class, stops at the first failure
+# Each check is a plain main that throws on a failed assertion, no test framework is needed
+# vector/ is compiled in when present, with the incubating Vector API, so its evaluator is checked too
+rm -rf test_out
+mkdir -p test_out
+SOURCES="src/*.java test/*.java"
+FLAGS=""
+if [ -d vector ]; then
+    SOURCES="$SOURCES vector/*.java"
+    FLAGS="--add-modules jdk.incubator.vector"
+fi
+# Warnings, the incubator one included, are only shown when the build fails
+javac $FLAGS -d test_out $SOURCES > test_out/javac.log 2>&1 || { cat test_out/javac.log; exit 1; }
+cp -r src/resources test_out
+for f in test/*Test.java; do
+    java $FLAGS -ea -cp test_out "$(basename "$f" .java)" || exit 1
+done
+rm -rf test_out
@@ -0,0 +1,104 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// Fills BoardBatches with random boards and checks every batch evaluator against Heuristic.evaluate(Bitboard, 0)
+// board by board. The Vector API evaluator is checked at every vector width when vector/ is compiled in and
+// the JVM has jdk.incubator.vector, test.sh sees to both
+public class BatchEvaluatorTest {
+    private static final TetrominoType[] TYPES = TetrominoType.values();
+    private static final int[] VECTOR_BITS = { 128, 256, 512 };
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        Random random = new Random(1);
+        boolean vector = hasVectorEvaluator();
+        for (int i = 0; i < 300; i++) {
+            int height = 4 + random.nextInt(40);
+            int columns = i < 20 ? 1 + i % 3 : 1 + random.nextInt(40); // One and two columns are all edges
+            Bitboard[] boards = new Bitboard[1 + random.nextInt(3 * BoardBatch.LANES + 5)];
+            BoardBatch batch = new BoardBatch(height, columns);
+            for (int b = 0; b < boards.length; b++) {
+                boards[b] = randomBoard(random, height, columns);
+                batch.add(boards[b]);
+            }
+            String message = boards.length + " boards of " + height + " by " + columns;
+
+            check(new ScalarBatchEvaluator(), batch, boards, "scalar, " + message);
+            if (vector) {
+                for (int bits : VECTOR_BITS) {
+                    check(vectorEvaluator(bits), batch, boards, bits + " bit vectors, " + message);
+                }
+            }
+
+            double[] scores = new double[batch.getCapacity()];
+            Heuristic.DEFAULT.evaluate(batch, scores);
+            for (int b = 0; b < boards.length; b++) {
+                double expected = Heuristic.DEFAULT.evaluate(boards[b], 0);
+                Check.isTrue(scores[b] == expected, "score of board " + b + " of " + message + ": expected "
+                        + expected + ", was " + scores[b]);
+            }
+        }
+        Check.isTrue(Heuristic.isBatchVectorized() == vector, "Heuristic picked the wrong evaluator");
+        System.out.println("BatchEvaluatorTest ok" + (vector ? "" : ", without vector/"));
+    }
+
+    // Stale stats are left in the lanes past the last board, which must not leak into any feature
+    private static void check(BatchEvaluator evaluator, BoardBatch batch, Bitboard[] boards, String message) {
+        Arrays.fill(batch.aggregateHeight, -1); // Nothing left over from the evaluator checked before
+        Arrays.fill(batch.totalHoles, -1);
+        Arrays.fill(batch.bumpiness, -1);
+        Arrays.fill(batch.wells, -1);
+        evaluator.computeFeatures(batch);
+        for (int b = 0; b < boards.length; b++) {
+            int[] expected = features(boards[b]);
+            Check.equal(expected[0], batch.aggregateHeight[b], message + ", aggregate height of board " + b);
+            Check.equal(expected[1], batch.totalHoles[b], message + ", holes of board " + b);
+            Check.equal(expected[2], batch.bumpiness[b], message + ", bumpiness of board " + b);
+            Check.equal(expected[3], batch.wells[b], message + ", wells of board " + b);
+        }
+    }
+
+    // The features straight from the definitions in Heuristic, with the walls as full columns
+    private static int[] features(Bitboard board) {
+        int columns = board.getColumns();
+        int[] features = new int[4];
+        for (int c = 0; c < columns; c++) {
+            int height = board.getColumnHeight(c);
+            int left = c > 0 ? board.getColumnHeight(c - 1) : board.getHeight();
+            int right = c + 1 < columns ? board.getColumnHeight(c + 1) : board.getHeight();
+            features[0] += height;
+            features[1] += board.getHoles(c);
+            if (c + 1 < columns)
+                features[2] += Math.abs(height - right);
+            features[3] += Math.max(Math.min(left, right) - height, 0);
+        }
+        return features;
+    }
+
+    // Columns of any height, empty and full ones included, with holes scattered below the tops
+    private static Bitboard randomBoard(Random random, int height, int columns) {
+        Bitboard board = new Bitboard(height, columns);
+        for (int c = 0; c < columns; c++) {
+            int top = random.nextInt(4) == 0 ? height : random.nextInt(height + 1);
+            for (int r = top; r < height; r++) {
+                if (r == top || random.nextInt(4) != 0)
+                    board.set(r, c, TYPES[random.nextInt(TYPES.length)]);
+            }
+        }
+        return board;
+    }
+
+    private static boolean hasVectorEvaluator() {
+        try {
+            vectorEvaluator(128);
+            return true;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return false;
+        }
+    }
+
+    // By name, so test/ compiles without vector/ as src/ does
+    private static BatchEvaluator vectorEvaluator(int bits) throws ReflectiveOperationException {
+        return (BatchEvaluator) Class.forName("VectorBatchEvaluator").getDeclaredConstructor(int.class)
+                .newInstance(bits);
+    }
+}
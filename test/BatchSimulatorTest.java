@@ -0,0 +1,41 @@
+// A batch split over a pool must add up to the same totals as its games played one after another on the calling
+// thread, passes over the seed list included, and runs without seeds or with a negative game count are refused
+public class BatchSimulatorTest {
+    public static void main(String[] args) {
+        long[] seeds = { 1, 2, 3, 4, 5 };
+        HeuristicBot bot = new HeuristicBot(Heuristic.DEFAULT, 1);
+        PlacementPolicy policy = grid -> {
+            BotDecision decision = bot.decide(grid);
+            return decision != null ? decision.getPlacement() : new Placement(0, 0);
+        };
+        BatchSimulator simulator = new BatchSimulator(16, 1, 150, BagGenerator::new, 3);
+        try {
+            for (int games : new int[] { 0, 1, 4, 13 }) {
+                BatchResult expected = new BatchResult();
+                for (int game = 0; game < games; game++) {
+                    expected.add(simulator.play(BatchSimulator.gameSeed(seeds, game), policy));
+                }
+                check(expected, simulator.run(seeds, policy, games), games + " games");
+            }
+
+            Check.throwsIllegalArgument(() -> simulator.run(new long[0], policy, 1), "run without seeds");
+            Check.throwsIllegalArgument(() -> simulator.run(seeds, policy, -1), "run of -1 games");
+        } finally {
+            simulator.shutdown();
+        }
+        System.out.println("BatchSimulatorTest ok");
+    }
+
+    private static void check(BatchResult expected, BatchResult actual, String message) {
+        Check.equal(expected.getGames(), actual.getGames(), message + ", games");
+        Check.equal(expected.getTotalScore(), actual.getTotalScore(), message + ", total score");
+        Check.equal(expected.getTotalLines(), actual.getTotalLines(), message + ", total lines");
+        Check.equal(expected.getTotalPieces(), actual.getTotalPieces(), message + ", total pieces");
+        Check.isTrue(expected.getAverageLevel() == actual.getAverageLevel(), message + ", average level");
+        Check.equal(expected.getMaxScore(), actual.getMaxScore(), message + ", max score");
+        Check.equal(expected.getMaxLines(), actual.getMaxLines(), message + ", max lines");
+        Check.equal(expected.getMaxLevel(), actual.getMaxLevel(), message + ", max level");
+        if (expected.getGames() > 0)
+            Check.isTrue(actual.getTotalLines() > 0, message + ", no lines were cleared");
+    }
+}
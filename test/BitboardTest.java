@@ -0,0 +1,163 @@
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+// Drops random pieces on Bitboards and compares every cell, column stat and hash with a plain 2D array model
+// that clears lines the obvious way, checkpoints, copies and snapshots included. One board is wider than a mask word
+public class BitboardTest {
+    public static void main(String[] args) {
+        check(22, 10, 1);
+        check(30, 66, 2);
+        check(200, 7, 3);
+        System.out.println("BitboardTest ok");
+    }
+
+    private static void check(int height, int columns, long seed) {
+        Random random = new Random(seed);
+        TetrominoType[] types = TetrominoType.values();
+        Bitboard board = new Bitboard(height, columns);
+        byte[][] model = new byte[height][columns];
+        BoardCheckpoint checkpoint = null;
+        byte[][] checkpointModel = null;
+        int lines = 0;
+
+        for (int step = 0; step < 5000; step++) {
+            // The deepest of a few random drops, so rows fill up and clear now and then
+            TetrominoType type = types[random.nextInt(types.length)];
+            int rotation = 0;
+            int column = 0;
+            int row = -1;
+            for (int tries = 0; tries < 8; tries++) {
+                int r = random.nextInt(4);
+                int c = random.nextInt(columns + 4) - 2;
+                if (board.fits(type, r, 2, c) && 2 + board.dropDistance(type, r, 2, c) > row) {
+                    rotation = r;
+                    column = c;
+                    row = 2 + board.dropDistance(type, r, 2, c);
+                }
+            }
+            if (row < 0) { // Topped out
+                board.clear();
+                model = new byte[height][columns];
+                compare(board, model, "cleared board");
+                continue;
+            }
+            int cleared = board.place(type, rotation, row, column);
+            Check.equal(place(model, type, rotation, row, column), cleared, "lines cleared at step " + step);
+            compare(board, model, "step " + step);
+            lines += cleared;
+
+            switch (random.nextInt(8)) {
+                case 0:
+                    checkpoint = board.checkpoint();
+                    checkpointModel = copy(model);
+                    break;
+                case 1:
+                    if (checkpoint != null) {
+                        board.restore(checkpoint);
+                        model = copy(checkpointModel);
+                        compare(board, model, "restore at step " + step);
+                    }
+                    break;
+                case 2:
+                    Bitboard other = new Bitboard(height, columns);
+                    other.copyFrom(board);
+                    compare(other, model, "copy at step " + step);
+                    break;
+                case 3: // Fill a low row up to one gap, so wide boards clear lines too
+                    int r = height - 1 - random.nextInt(Math.max(height / 4, 1));
+                    int gap = random.nextInt(columns);
+                    if (model[r][gap] != Bitboard.EMPTY)
+                        break; // Rows only clear when a piece is placed, so the gap has to stay open
+                    for (int c = 0; c < columns; c++) {
+                        if (c != gap && model[r][c] == Bitboard.EMPTY) {
+                            board.set(r, c, TetrominoType.I);
+                            model[r][c] = Bitboard.toCell(TetrominoType.I);
+                        }
+                    }
+                    compare(board, model, "filled row at step " + step);
+                    break;
+                case 4: // Read back into a fresh board, and into the board itself over what it holds
+                    ByteBuffer buffer = ByteBuffer.allocate(board.getSnapshotSize());
+                    board.writeTo(buffer);
+                    Check.equal(0, buffer.remaining(), "snapshot size at step " + step);
+                    Bitboard read = new Bitboard(height, columns);
+                    buffer.flip();
+                    read.readFrom(buffer);
+                    compare(read, model, "snapshot at step " + step);
+                    buffer.flip();
+                    board.readFrom(buffer);
+                    compare(board, model, "snapshot read over itself at step " + step);
+                    break;
+                default:
+                    break;
+            }
+        }
+        Check.isTrue(lines > 0, "no lines were cleared on the " + height + " by " + columns + " board");
+    }
+
+    // Sets the piece's cells and deletes full rows, everything above a deleted row moving down one
+    private static int place(byte[][] model, TetrominoType type, int rotation, int row, int column) {
+        int[] rowOffsets = type.getRowOffsets(rotation);
+        int[] columnOffsets = type.getColumnOffsets(rotation);
+        for (int i = 0; i < rowOffsets.length; i++) {
+            model[row + rowOffsets[i]][column + columnOffsets[i]] = Bitboard.toCell(type);
+        }
+        int cleared = 0;
+        for (int r = model.length - 1; r >= 0; r--) {
+            boolean full = true;
+            for (byte cell : model[r]) {
+                full &= cell != Bitboard.EMPTY;
+            }
+            if (!full)
+                continue;
+            System.arraycopy(model, 0, model, 1, r);
+            model[0] = new byte[model[0].length];
+            cleared++;
+            r++; // The row that moved into r is checked again
+        }
+        return cleared;
+    }
+
+    private static void compare(Bitboard board, byte[][] model, String message) {
+        int height = model.length;
+        int columns = model[0].length;
+        Bitboard rebuilt = new Bitboard(height, columns); // Hash built by sets alone, no line clears involved
+        int top = height;
+        for (int r = 0; r < height; r++) {
+            int filled = 0;
+            for (int c = 0; c < columns; c++) {
+                Check.equal(model[r][c], board.getCell(r, c), message + ", cell " + r + "," + c);
+                if (model[r][c] != Bitboard.EMPTY) {
+                    filled++;
+                    rebuilt.set(r, c, TetrominoType.values()[model[r][c] - 1]);
+                }
+            }
+            Check.equal(filled, board.getFilledCount(r), message + ", filled count of row " + r);
+            if (filled > 0)
+                top = Math.min(top, r);
+        }
+        Check.equal(top, board.getTop(), message + ", top");
+        for (int c = 0; c < columns; c++) {
+            int surface = 0;
+            while (surface < height && model[surface][c] == Bitboard.EMPTY) {
+                surface++;
+            }
+            int holes = 0;
+            for (int r = surface; r < height; r++) {
+                if (model[r][c] == Bitboard.EMPTY)
+                    holes++;
+            }
+            Check.equal(surface, board.getSurface(c), message + ", surface of column " + c);
+            Check.equal(holes, board.getHoles(c), message + ", holes in column " + c);
+        }
+        Check.equal(rebuilt.getHash(), board.getHash(), message + ", hash");
+    }
+
+    private static byte[][] copy(byte[][] model) {
+        byte[][] copy = new byte[model.length][];
+        for (int r = 0; r < model.length; r++) {
+            copy[r] = model[r].clone();
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,96 @@
+import java.nio.ByteBuffer;
+
+// Assertions for the checks in test/, plain Java so they run without a test framework or any download
+public class Check {
+    private Check() {
+    }
+
+    public static void isTrue(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    public static void equal(long expected, long actual, String message) {
+        if (expected != actual)
+            throw new AssertionError(message + ": expected " + expected + ", was " + actual);
+    }
+
+    public static void equal(Object expected, Object actual, String message) {
+        if (expected == null ? actual != null : !expected.equals(actual))
+            throw new AssertionError(message + ": expected " + expected + ", was " + actual);
+    }
+
+    public static void throwsIllegalArgument(Runnable action, String message) {
+        try {
+            action.run();
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        throw new AssertionError(message + ": no IllegalArgumentException");
+    }
+
+    // Everything a player or a replay can observe about a game
+    public static void sameGame(Grid expected, Grid actual, String message) {
+        equal(expected.getHash(), actual.getHash(), message + ", hash");
+        equal(expected.getScore(), actual.getScore(), message + ", score");
+        equal(expected.getLines(), actual.getLines(), message + ", lines");
+        equal(expected.getLevel(), actual.getLevel(), message + ", level");
+        equal(expected.getPiecesPlaced(), actual.getPiecesPlaced(), message + ", pieces placed");
+        equal(expected.getTicksTillDrop(), actual.getTicksTillDrop(), message + ", ticks till drop");
+        isTrue(expected.isGameOver() == actual.isGameOver(), message + ", game over");
+        isTrue(expected.canHold() == actual.canHold(), message + ", can hold");
+        Tetromino a = expected.getCurrentTetromino();
+        Tetromino b = actual.getCurrentTetromino();
+        isTrue(a.getType() == b.getType() && a.getRotation() == b.getRotation() && a.getRow() == b.getRow()
+                && a.getColumn() == b.getColumn() && a.getLockTimer() == b.getLockTimer(), message + ", current piece");
+        for (int i = 0; i < expected.getQueue().size(); i++) {
+            isTrue(expected.getQueue().get(i).getType() == actual.getQueue().get(i).getType(), message + ", queue");
+        }
+        Bitboard board = expected.getBoard();
+        for (int r = 0; r < board.getHeight(); r++) {
+            for (int c = 0; c < board.getColumns(); c++) {
+                equal(board.getCell(r, c), actual.getBoard().getCell(r, c), message + ", cell " + r + "," + c);
+            }
+        }
+    }
+
+    // A bot's decision: the placement is among those MoveGenerator finds for the piece played, and the inputs
+    // lock it there
+    public static void decision(Grid grid, BotDecision decision, String message) {
+        Grid copy = copy(grid);
+        if (decision.isHold()) {
+            equal(Input.HOLD, decision.getInputs().get(0), message + ", first input of a hold");
+            isTrue(copy.apply(Input.HOLD), message + ", hold refused");
+        }
+        MoveGenerator generator = new MoveGenerator();
+        int count = generator.generate(copy);
+        Placement placement = decision.getPlacement();
+        boolean reachable = false;
+        for (int p = 0; p < count; p++) {
+            reachable |= generator.getRotation(p) == placement.getRotation()
+                    && generator.getRow(p) == placement.getRow() && generator.getColumn(p) == placement.getColumn();
+        }
+        isTrue(reachable, message + ", placement not reachable");
+
+        Bitboard expected = new Bitboard(copy.getBoard().getHeight(), copy.getColumns());
+        expected.copyFrom(copy.getBoard());
+        expected.place(copy.getCurrentTetromino().getType(), placement.getRotation(), placement.getRow(),
+                placement.getColumn());
+        int placed = grid.getPiecesPlaced();
+        decision.applyTo(copy);
+        equal(placed + 1, copy.getPiecesPlaced(), message + ", pieces placed by the inputs");
+        equal(Input.HARD_DROP, decision.getInputs().get(decision.getInputs().size() - 1), message + ", last input");
+        for (int r = 0; r < expected.getHeight(); r++) {
+            for (int c = 0; c < expected.getColumns(); c++) {
+                equal(expected.getCell(r, c), copy.getBoard().getCell(r, c), message + ", cell " + r + "," + c);
+            }
+        }
+    }
+
+    private static Grid copy(Grid grid) {
+        ByteBuffer buffer = ByteBuffer.allocate(grid.getSnapshotSize());
+        grid.writeSnapshot(buffer);
+        buffer.flip();
+        return Grid.fromSnapshot(buffer);
+    }
+}
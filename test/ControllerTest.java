@@ -0,0 +1,195 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+// Drives a Controller with made up nanoTime stamps and checks when the piece moves: the DAS charge, the ARR
+// spacing, soft drop repeats, ARR 0 pinning every piece to the wall, and falling back to the other direction
+public class ControllerTest {
+    private static final long MS = 1_000_000L;
+    private static final long DAS = 100 * MS;
+    private static final long ARR = 20 * MS;
+    private static final long SOFT_DROP = 30 * MS;
+
+    public static void main(String[] args) {
+        checkRepeat();
+        checkKeyRepeat();
+        checkSoftDrop();
+        checkSlide();
+        checkOtherDirection();
+        checkReset();
+        System.out.println("ControllerTest ok");
+    }
+
+    // One move on the press, the next once DAS has charged, then one every ARR until the wall stops it
+    private static void checkRepeat() {
+        Grid grid = grid();
+        Controller controller = new Controller(grid, DAS, ARR, SOFT_DROP);
+        int start = column(grid);
+        int wall = wallColumn(grid, true);
+
+        controller.press(Input.RIGHT, 0);
+        Check.equal(start + 1, column(grid), "column after pressing right");
+        List<Long> moves = changes(controller, grid, ControllerTest::column, MS, 400 * MS);
+        Check.equal(wall - start - 1, moves.size(), "repeats until the wall");
+        for (int i = 0; i < moves.size(); i++) {
+            Check.equal(DAS + i * ARR, (long) moves.get(i), "time of repeat " + i);
+        }
+        Check.equal(wall, column(grid), "column held against the wall");
+
+        // Jumping ahead fires every repeat that fell due in between, not just one
+        Grid other = grid();
+        Controller late = new Controller(other, DAS, ARR, SOFT_DROP);
+        late.press(Input.LEFT, 0);
+        late.advanceTo(DAS + 2 * ARR);
+        Check.equal(start - 4, column(other), "column after catching up three repeats");
+    }
+
+    // The OS repeats a held key as more presses, which must neither move the piece nor restart DAS
+    private static void checkKeyRepeat() {
+        Grid grid = grid();
+        Controller controller = new Controller(grid, DAS, ARR, SOFT_DROP);
+        int start = column(grid);
+        controller.press(Input.RIGHT, 0);
+        controller.press(Input.RIGHT, 30 * MS);
+        controller.press(Input.RIGHT, 60 * MS);
+        Check.equal(start + 1, column(grid), "column after OS key repeats");
+        controller.advanceTo(DAS);
+        Check.equal(start + 2, column(grid), "column once DAS charged from the first press");
+    }
+
+    private static void checkSoftDrop() {
+        Grid grid = grid();
+        Controller controller = new Controller(grid, DAS, ARR, SOFT_DROP);
+        int start = row(grid);
+        controller.press(Input.SOFT_DROP, 0);
+        Check.equal(start + 1, row(grid), "row after pressing down");
+        List<Long> drops = changes(controller, grid, ControllerTest::row, MS, 100 * MS);
+        Check.equal(3, drops.size(), "soft drops in 100 ms");
+        for (int i = 0; i < drops.size(); i++) {
+            Check.equal((i + 1) * SOFT_DROP, (long) drops.get(i), "time of soft drop " + i);
+        }
+        controller.release(Input.SOFT_DROP, 100 * MS);
+        Check.equal(Long.MAX_VALUE, controller.getNextRepeatTime(), "repeat after releasing down");
+        controller.advanceTo(1000 * MS);
+        Check.equal(start + 4, row(grid), "row after releasing down");
+    }
+
+    // With ARR 0 a charged DAS puts the piece straight against the wall, and every later piece, held ones
+    // included, is pinned there at the next advance
+    private static void checkSlide() {
+        Grid grid = grid();
+        Controller controller = new Controller(grid, DAS, 0, SOFT_DROP);
+        int[] rights = new int[1];
+        grid.addListener(new GridListener() {
+            @Override
+            public void inputApplied(Grid grid, Input input) {
+                if (input == Input.RIGHT)
+                    rights[0]++;
+            }
+        });
+        int start = column(grid);
+        int wall = wallColumn(grid, true);
+        controller.press(Input.RIGHT, 0);
+        controller.advanceTo(DAS - 1);
+        Check.equal(start + 1, column(grid), "column before DAS charged");
+        controller.advanceTo(DAS);
+        Check.equal(wall, column(grid), "column once DAS charged with ARR 0");
+        Check.equal(wall - start, rights[0], "moves to the wall");
+        Check.equal(Long.MAX_VALUE, controller.getNextRepeatTime(), "repeat while pinned to the wall");
+        controller.advanceTo(500 * MS);
+        Check.equal(wall - start, rights[0], "moves sent while pinned to the wall");
+
+        for (int piece = 0; piece < 5; piece++) {
+            long time = 600 * MS + piece * 10 * MS;
+            controller.press(piece == 2 ? Input.HOLD : Input.HARD_DROP, time);
+            controller.release(piece == 2 ? Input.HOLD : Input.HARD_DROP, time);
+            controller.advanceTo(time + 1);
+            Check.equal(wallColumn(grid, true), column(grid), "piece " + piece + " pinned to the wall");
+        }
+
+        controller.release(Input.RIGHT, 700 * MS);
+        controller.press(Input.HARD_DROP, 710 * MS);
+        controller.advanceTo(720 * MS);
+        Check.equal(grid.getQueueSpawn(grid.getCurrentTetromino().getType()).getColumn(), column(grid),
+                "piece after releasing right");
+    }
+
+    // Pressing the other way takes over, releasing it falls back to the first direction with DAS charged again
+    private static void checkOtherDirection() {
+        Grid grid = grid();
+        Controller controller = new Controller(grid, DAS, ARR, SOFT_DROP);
+        int start = column(grid);
+        controller.press(Input.RIGHT, 0);
+        controller.press(Input.LEFT, 50 * MS);
+        Check.equal(start, column(grid), "column after pressing left while holding right");
+        controller.advanceTo(149 * MS);
+        Check.equal(start, column(grid), "column before left's DAS charged");
+        controller.advanceTo(150 * MS);
+        Check.equal(start - 1, column(grid), "column once left's DAS charged");
+
+        controller.release(Input.LEFT, 160 * MS);
+        Check.equal(start, column(grid), "column after falling back to right");
+        List<Long> moves = changes(controller, grid, ControllerTest::column, MS, 300 * MS);
+        Check.equal(160 * MS + DAS, (long) moves.get(0), "first repeat after falling back to right");
+        Check.equal(160 * MS + DAS + ARR, (long) moves.get(1), "second repeat after falling back to right");
+
+        // Releasing the direction that is not shifting changes nothing
+        Grid quiet = grid();
+        Controller other = new Controller(quiet, DAS, ARR, SOFT_DROP);
+        other.press(Input.LEFT, 0);
+        other.press(Input.RIGHT, 10 * MS);
+        other.release(Input.LEFT, 20 * MS);
+        Check.equal(start, column(quiet), "column after releasing the direction not shifting");
+        other.advanceTo(10 * MS + DAS);
+        Check.equal(start + 1, column(quiet), "right still charged from its own press");
+    }
+
+    private static void checkReset() {
+        Grid grid = grid();
+        Controller controller = new Controller(grid, DAS, ARR, SOFT_DROP);
+        int start = column(grid);
+        controller.press(Input.RIGHT, 0);
+        controller.reset();
+        controller.advanceTo(DAS * 3);
+        Check.equal(start + 1, column(grid), "column after a reset while holding right");
+        controller.press(Input.RIGHT, DAS * 3);
+        Check.equal(start + 2, column(grid), "right pressed again after a reset");
+    }
+
+    // Steps the clock and returns the times the value changed
+    private static List<Long> changes(Controller controller, Grid grid, ToIntFunction<Grid> value, long step,
+            long until) {
+        List<Long> times = new ArrayList<>();
+        int last = value.applyAsInt(grid);
+        for (long time = step; time <= until; time += step) {
+            controller.advanceTo(time);
+            int now = value.applyAsInt(grid);
+            if (now != last)
+                times.add(time);
+            last = now;
+        }
+        return times;
+    }
+
+    // Wide enough for several repeats each way, and nothing ticks, so only the Controller moves the piece
+    private static Grid grid() {
+        return new Grid(40, 1, new BagGenerator(1));
+    }
+
+    private static int column(Grid grid) {
+        return grid.getCurrentTetromino().getColumn();
+    }
+
+    private static int row(Grid grid) {
+        return grid.getCurrentTetromino().getRow();
+    }
+
+    private static int wallColumn(Grid grid, boolean right) {
+        Tetromino piece = grid.getCurrentTetromino();
+        int column = piece.getColumn();
+        while (grid.getBoard().fits(piece.getType(), piece.getRotation(), piece.getRow(), column + (right ? 1 : -1))) {
+            column += right ? 1 : -1;
+        }
+        return column;
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.Random;
+
+// Plays seeded games for the checks, so a test can reach full rows, holds and lock delays within a few pieces
+public class Games {
+    private Games() {
+    }
+
+    // Each piece goes to the heuristic's best placement, or now and then a random one, by the inputs of its
+    // MoveGenerator path. Holds, stray inputs and a few ticks of gravity are mixed in between pieces
+    // Boards too big to search get random inputs only
+    public static void play(Grid grid, Random random, int pieces) {
+        play(new HeadlessSimulation(grid), random, pieces);
+    }
+
+    // The same on a simulation's clock, so recorders and rewinds reading it see the ticks go by
+    public static void play(HeadlessSimulation simulation, Random random, int pieces) {
+        Grid grid = simulation.getGrid();
+        Input[] all = Input.values();
+        if (!MoveGenerator.canSearch(grid.getBoard().getHeight(), grid.getColumns())) {
+            for (int i = 0; i < pieces * 8 && !grid.isGameOver(); i++) {
+                simulation.runUntil(simulation.getTick() + random.nextInt(30));
+                grid.apply(all[random.nextInt(all.length)]);
+            }
+            return;
+        }
+
+        MoveGenerator generator = new MoveGenerator();
+        Bitboard scratch = new Bitboard(grid.getBoard().getHeight(), grid.getColumns());
+        for (int i = 0; i < pieces && !grid.isGameOver(); i++) {
+            if (random.nextInt(8) == 0)
+                grid.apply(Input.HOLD);
+            if (random.nextInt(4) == 0)
+                grid.apply(all[random.nextInt(all.length - 2)]); // Anything but a hard drop or a hold
+            int count = generator.generate(grid);
+            if (count == 0) {
+                simulation.runUntil(simulation.getTick() + 1 + random.nextInt(30));
+                continue;
+            }
+
+            int best = random.nextInt(count);
+            if (random.nextInt(6) != 0) {
+                double bestScore = Double.NEGATIVE_INFINITY;
+                for (int p = 0; p < count; p++) {
+                    scratch.copyFrom(grid.getBoard());
+                    int lines = scratch.place(generator.getType(), generator.getRotation(p), generator.getRow(p),
+                            generator.getColumn(p));
+                    double score = Heuristic.DEFAULT.evaluate(scratch, lines);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = p;
+                    }
+                }
+            }
+            for (Input input : generator.getPath(best)) {
+                grid.apply(input);
+            }
+            simulation.runUntil(simulation.getTick() + random.nextInt(4));
+        }
+    }
+}
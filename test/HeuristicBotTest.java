@@ -0,0 +1,138 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Plays seeded games with HeuristicBot and checks every decision: its placement is one MoveGenerator reaches, its
+// inputs lock the piece there, a transposition table never changes what the search picks, and a time budget
+// holds even when scoring one piece ahead does not fit in it
+public class HeuristicBotTest {
+    private static final long SLACK_MICROS = 50_000; // Scheduling and garbage collection on a busy machine
+
+    public static void main(String[] args) {
+        checkLegal(new HeuristicBot(Heuristic.DEFAULT, 2), 1);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            checkLegal(new HeuristicBot(Heuristic.DEFAULT, 3, 2_000, pool), 2);
+            checkTable(null);
+            checkTable(pool);
+            checkBudget(3, null);
+            checkBudget(4, pool);
+            checkSlowScoring(null);
+            checkSlowScoring(pool);
+        } finally {
+            pool.shutdown();
+        }
+        checkGameOver();
+        System.out.println("HeuristicBotTest ok");
+    }
+
+    private static void checkLegal(HeuristicBot bot, long seed) {
+        Grid grid = new Grid(22, 1, new BagGenerator(seed));
+        Random random = new Random(seed);
+        for (int i = 0; i < 60; i++) {
+            if (grid.isGameOver())
+                grid.reset();
+            if (random.nextInt(3) == 0)
+                Games.play(grid, random, 1); // Held pieces and messier stacks than the bot leaves
+            if (grid.isGameOver())
+                continue;
+            BotDecision decision = bot.decide(grid);
+            Check.isTrue(decision != null, "no decision for piece " + i);
+            Check.decision(grid, decision, "piece " + i);
+            decision.applyTo(grid);
+        }
+    }
+
+    // Searched to the same depth with no budget, the table only saves work, the choice and its value stay the same
+    private static void checkTable(ForkJoinPool pool) {
+        HeuristicBot plain = new HeuristicBot(Heuristic.DEFAULT, 3, 0, pool);
+        HeuristicBot cached = new HeuristicBot(Heuristic.DEFAULT, 3, 0, pool, new TranspositionTable(16));
+        Grid grid = new Grid(22, 1, new BagGenerator(7));
+        Random random = new Random(7);
+        for (int i = 0; i < 25 && !grid.isGameOver(); i++) {
+            if (random.nextInt(3) == 0)
+                Games.play(grid, random, 1);
+            if (grid.isGameOver())
+                break;
+            BotDecision expected = plain.decide(grid);
+            BotDecision actual = cached.decide(grid);
+            String message = "piece " + i + (pool == null ? "" : " on a pool");
+            Check.isTrue(expected.isHold() == actual.isHold(), message + ", hold with the table");
+            Check.equal(expected.getPlacement().getRotation(), actual.getPlacement().getRotation(),
+                    message + ", rotation with the table");
+            Check.equal(expected.getPlacement().getRow(), actual.getPlacement().getRow(),
+                    message + ", row with the table");
+            Check.equal(expected.getPlacement().getColumn(), actual.getPlacement().getColumn(),
+                    message + ", column with the table");
+            Check.isTrue(expected.getScore() == actual.getScore(), message + ", value with the table: expected "
+                    + expected.getScore() + ", was " + actual.getScore());
+            Check.equal(3, actual.getDepth(), message + ", depth with the table");
+            expected.applyTo(grid);
+        }
+    }
+
+    // Warmed up first, so the timed decisions run compiled code like a game past its first few pieces
+    private static void checkBudget(long seed, ForkJoinPool pool) {
+        Grid grid = new Grid(22, 1, new BagGenerator(seed));
+        long budgetMicros = 2_000;
+        HeuristicBot bot = new HeuristicBot(Heuristic.DEFAULT, 4, budgetMicros, pool);
+        for (int i = 0; i < 5; i++) {
+            bot.decide(grid).applyTo(grid);
+        }
+        String message = pool == null ? "" : " on a pool";
+        for (int i = 0; i < 10 && !grid.isGameOver(); i++) {
+            long start = System.nanoTime();
+            BotDecision decision = bot.decide(grid);
+            long micros = (System.nanoTime() - start) / 1000;
+            Check.isTrue(micros <= budgetMicros + SLACK_MICROS, "decision " + i + message + " took " + micros
+                    + " us on a budget of " + budgetMicros);
+            Check.decision(grid, decision, "decision " + i + message);
+            decision.applyTo(grid);
+        }
+    }
+
+    // Every board takes 2 ms to score here, so one piece ahead needs well over 100 ms and a 5 ms budget runs out
+    // after a few placements. The decision is then the best of those few
+    private static void checkSlowScoring(ForkJoinPool pool) {
+        AtomicInteger scored = new AtomicInteger();
+        Heuristic slow = new Heuristic(Heuristic.DEFAULT.getWeights()) {
+            @Override
+            public double evaluate(Bitboard board, int linesCleared) {
+                scored.incrementAndGet();
+                long until = System.nanoTime() + 2_000_000;
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+                return super.evaluate(board, linesCleared);
+            }
+        };
+        long budgetMicros = 5_000;
+        HeuristicBot bot = new HeuristicBot(slow, 3, budgetMicros, pool);
+        Grid grid = new Grid(22, 1, new BagGenerator(9));
+        MoveGenerator generator = new MoveGenerator();
+        String message = pool == null ? "" : " on a pool";
+        for (int i = 0; i < 3; i++) {
+            int placements = generator.generate(grid);
+            scored.set(0);
+            long start = System.nanoTime();
+            BotDecision decision = bot.decide(grid);
+            long micros = (System.nanoTime() - start) / 1000;
+            Check.isTrue(micros <= budgetMicros + SLACK_MICROS, "slow decision " + i + message + " took " + micros
+                    + " us on a budget of " + budgetMicros);
+            Check.isTrue(scored.get() > 0 && scored.get() < placements, "slow decision " + i + message + " scored "
+                    + scored.get() + " of " + placements + " placements");
+            Check.equal(1, decision.getDepth(), "depth of slow decision " + i + message);
+            Check.decision(grid, decision, "slow decision " + i + message);
+            decision.applyTo(grid);
+        }
+    }
+
+    private static void checkGameOver() {
+        Grid grid = new Grid(22, 1, new BagGenerator(8));
+        HeuristicBot bot = new HeuristicBot(Heuristic.DEFAULT, 2);
+        while (!grid.isGameOver()) {
+            grid.apply(Input.HARD_DROP);
+        }
+        Check.isTrue(bot.decide(grid) == null, "decision after the game ended");
+    }
+}
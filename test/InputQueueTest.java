@@ -0,0 +1,87 @@
+// The ring rounds its capacity up to a power of two, refuses events when full, keeps them in order across
+// many wraparounds and hands them from one thread to another without losing or reordering any
+public class InputQueueTest {
+    public static void main(String[] args) throws InterruptedException {
+        checkCodes();
+        checkFull(new InputQueue(5), 8);
+        checkFull(new InputQueue(8), 8);
+        checkFull(new InputQueue(1), 2);
+        checkWraparound();
+        checkThreads();
+        System.out.println("InputQueueTest ok");
+    }
+
+    private static void checkCodes() {
+        for (Input input : Input.values()) {
+            for (boolean pressed : new boolean[] { true, false }) {
+                int code = InputQueue.encode(input, pressed);
+                Check.equal(input, InputQueue.decodeInput(code), "input of " + input + " " + pressed);
+                Check.isTrue(InputQueue.decodePressed(code) == pressed, "pressed flag of " + input + " " + pressed);
+            }
+        }
+    }
+
+    private static void checkFull(InputQueue queue, int size) {
+        for (int i = 0; i < size; i++) {
+            Check.isTrue(queue.offer(i, i), "offer " + i + " of " + size);
+        }
+        Check.isTrue(!queue.offer(size, size), "offer to a full queue of " + size);
+        Check.equal(0, queue.peekTime(), "oldest event of a full queue");
+        queue.remove();
+        Check.isTrue(queue.offer(size, size), "offer after one was removed from a full queue of " + size);
+        for (int i = 1; i <= size; i++) {
+            Check.isTrue(!queue.isEmpty(), "queue of " + size + " emptied early");
+            Check.equal(i, queue.peekTime(), "time of event " + i);
+            Check.equal(i, queue.peekCode(), "code of event " + i);
+            queue.remove();
+        }
+        Check.isTrue(queue.isEmpty(), "queue of " + size + " not empty after draining");
+    }
+
+    // Uneven batches, so reads and writes meet every slot at every offset of the ring
+    private static void checkWraparound() {
+        InputQueue queue = new InputQueue(8);
+        long written = 0;
+        long read = 0;
+        for (int round = 0; round < 1000; round++) {
+            int batch = 1 + round % 5;
+            for (int i = 0; i < batch; i++) {
+                Check.isTrue(queue.offer(written * 3, (int) written), "offer " + written);
+                written++;
+            }
+            for (int i = 0; i < batch - round % 3 && !queue.isEmpty(); i++) {
+                Check.equal(read * 3, queue.peekTime(), "time of event " + read);
+                Check.equal((int) read, queue.peekCode(), "code of event " + read);
+                queue.remove();
+                read++;
+            }
+            while (written - read > 3) { // Room for the next batch
+                queue.remove();
+                read++;
+            }
+        }
+    }
+
+    private static void checkThreads() throws InterruptedException {
+        InputQueue queue = new InputQueue(16);
+        int events = 200_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < events; i++) {
+                while (!queue.offer(i, i)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        for (int i = 0; i < events; i++) {
+            while (queue.isEmpty()) {
+                Thread.yield();
+            }
+            Check.equal(i, queue.peekTime(), "time of event " + i + " from the producer thread");
+            Check.equal(i, queue.peekCode(), "code of event " + i + " from the producer thread");
+            queue.remove();
+        }
+        producer.join();
+        Check.isTrue(queue.isEmpty(), "events left after the producer finished");
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Plays seeded games with MonteCarloBot on the calling thread and on a pool of two workers. Every decision must
+// be a placement MoveGenerator reaches, come within the budget and rest on rollouts, and a game over gets none
+public class MonteCarloBotTest {
+    private static final long BUDGET_MICROS = 10_000;
+    private static final long SLACK_MICROS = 50_000; // Scheduling and garbage collection on a busy machine
+
+    public static void main(String[] args) {
+        check(null, 1);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            check(pool, 2);
+        } finally {
+            pool.shutdown();
+        }
+        checkGameOver();
+        System.out.println("MonteCarloBotTest ok");
+    }
+
+    // Warmed up first, so the timed decisions run compiled code like a game past its first few pieces
+    private static void check(ForkJoinPool pool, long seed) {
+        MonteCarloBot bot = new MonteCarloBot(Heuristic.DEFAULT, BUDGET_MICROS, pool);
+        Grid grid = new Grid(22, 1, new BagGenerator(seed));
+        Random random = new Random(seed);
+        for (int i = 0; i < 5; i++) {
+            bot.decide(grid).applyTo(grid);
+        }
+        String message = pool == null ? "" : " on a pool";
+        for (int i = 0; i < 30; i++) {
+            if (grid.isGameOver())
+                grid.reset();
+            if (random.nextInt(3) == 0)
+                Games.play(grid, random, 1); // Held pieces and messier stacks than the bot leaves
+            if (grid.isGameOver())
+                continue;
+            long rollouts = bot.getRollouts();
+            long start = System.nanoTime();
+            BotDecision decision = bot.decide(grid);
+            long micros = (System.nanoTime() - start) / 1000;
+            Check.isTrue(decision != null, "no decision for piece " + i + message);
+            Check.isTrue(micros <= BUDGET_MICROS + SLACK_MICROS, "piece " + i + message + " took " + micros
+                    + " us on a budget of " + BUDGET_MICROS);
+            Check.isTrue(bot.getRollouts() > rollouts, "no rollouts for piece " + i + message);
+            Check.decision(grid, decision, "piece " + i + message);
+            decision.applyTo(grid);
+        }
+    }
+
+    private static void checkGameOver() {
+        Grid grid = new Grid(22, 1, new BagGenerator(3));
+        MonteCarloBot bot = new MonteCarloBot(Heuristic.DEFAULT, 1_000, null);
+        while (!grid.isGameOver()) {
+            grid.apply(Input.HARD_DROP);
+        }
+        Check.isTrue(bot.decide(grid) == null, "decision after the game ended");
+    }
+}
@@ -0,0 +1,184 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// Compares MoveGenerator with a brute force breadth first search that takes every input one row at a time, on
+// random boards full of overhangs and on boards from seeded games. Every placement must be found, none twice,
+// with a shortest path, and every path must lead the piece there when its inputs are played on the board
+public class MoveGeneratorTest {
+    private static final TetrominoType[] TYPES = TetrominoType.values();
+
+    public static void main(String[] args) {
+        MoveGenerator generator = new MoveGenerator();
+        Random random = new Random(1);
+        for (int i = 0; i < 300; i++) {
+            Bitboard board = randomBoard(random, 10 + random.nextInt(20), 4 + random.nextInt(12));
+            for (TetrominoType type : TYPES) {
+                int rotation = random.nextInt(4);
+                int column = board.getColumns() / 2;
+                if (board.fits(type, rotation, 2, column))
+                    check(generator, board, type, rotation, 2, column, "random board " + i + ", " + type);
+            }
+        }
+
+        Grid grid = new Grid(22, 1, new BagGenerator(2));
+        for (int i = 0; i < 200; i++) {
+            if (grid.isGameOver())
+                grid.reset();
+            Games.play(grid, random, 1);
+            if (grid.isGameOver())
+                continue;
+            Tetromino current = grid.getCurrentTetromino();
+            check(generator, grid.getBoard(), current.getType(), current.getRotation(), current.getRow(),
+                    current.getColumn(), "game piece " + i);
+            checkOnGrid(generator, grid, random, "game piece " + i);
+        }
+        System.out.println("MoveGeneratorTest ok");
+    }
+
+    // The bottom rows filled at random, with the odd cell higher up, so tucks and spins under overhangs count
+    private static Bitboard randomBoard(Random random, int height, int columns) {
+        Bitboard board = new Bitboard(height, columns);
+        int stack = height / 2 + random.nextInt(height / 2);
+        for (int r = 5; r < height; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (random.nextInt(100) < (r >= stack ? 55 : 4))
+                    board.set(r, c, TYPES[random.nextInt(TYPES.length)]);
+            }
+        }
+        return board;
+    }
+
+    private static void check(MoveGenerator generator, Bitboard board, TetrominoType type, int rotation, int row,
+            int column, String message) {
+        Map<String, Integer> expected = search(board, type, rotation, row, column);
+        int count = generator.generate(board, type, rotation, row, column);
+        Check.equal(expected.size(), count, message + ", placements");
+
+        Set<String> seen = new HashSet<>();
+        for (int p = 0; p < count; p++) {
+            String footprint = footprint(type, generator.getRotation(p), generator.getRow(p), generator.getColumn(p));
+            Check.isTrue(seen.add(footprint), message + ", " + footprint + " found twice");
+            Check.isTrue(expected.containsKey(footprint), message + ", " + footprint + " is not reachable");
+            Check.equal(expected.get(footprint).intValue(), generator.getPathLength(p), message + ", path length to "
+                    + footprint);
+            Check.equal(footprint, follow(board, type, rotation, row, column, generator.getPath(p)), message
+                    + ", where the path to " + footprint + " leads");
+        }
+    }
+
+    // Plays one path on a copy of the game and checks the piece locks where the generator said
+    private static void checkOnGrid(MoveGenerator generator, Grid grid, Random random, String message) {
+        int count = generator.generate(grid);
+        int p = random.nextInt(count);
+        String footprint = footprint(generator.getType(), generator.getRotation(p), generator.getRow(p),
+                generator.getColumn(p));
+        Grid copy = Grid.fromSnapshot(snapshot(grid));
+        String[] locked = new String[1];
+        copy.addListener(new GridListener() {
+            @Override
+            public void pieceLocked(Grid grid, Tetromino tetromino) {
+                locked[0] = footprint(tetromino.getType(), tetromino.getRotation(), tetromino.getRow(),
+                        tetromino.getColumn());
+            }
+        });
+        for (Input input : generator.getPath(p)) {
+            Check.isTrue(copy.apply(input), message + ", " + input + " on the way to " + footprint + " was blocked");
+        }
+        Check.equal(footprint, locked[0], message + ", piece locked");
+    }
+
+    // Fewest inputs to each footprint, LEFT, RIGHT, rotations and single row SOFT_DROPs then a HARD_DROP
+    private static Map<String, Integer> search(Bitboard board, TetrominoType type, int rotation, int row,
+            int column) {
+        Map<String, Integer> placements = new HashMap<>();
+        Map<Long, Integer> distance = new HashMap<>();
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        distance.put(key(row, column, rotation), 0);
+        queue.add(new int[] { row, column, rotation });
+        while (!queue.isEmpty()) {
+            int[] s = queue.poll();
+            int d = distance.get(key(s[0], s[1], s[2]));
+            int rest = s[0] + board.dropDistance(type, s[2], s[0], s[1]);
+            placements.merge(footprint(type, s[2], rest, s[1]), d + 1, Math::min);
+
+            int[][] next = { { s[0], s[1] - 1, s[2] }, { s[0], s[1] + 1, s[2] }, { s[0] + 1, s[1], s[2] },
+                    { s[0], s[1], (s[2] + 1) & 3 }, { s[0], s[1], (s[2] + 3) & 3 } };
+            for (int i = 0; i < (type.isRotatable() ? 5 : 3); i++) {
+                int[] n = next[i];
+                if (board.fits(type, n[2], n[0], n[1]) && distance.putIfAbsent(key(n[0], n[1], n[2]), d + 1) == null)
+                    queue.add(n);
+            }
+        }
+        return placements;
+    }
+
+    // Plays the inputs on the board alone, each must be possible, and returns where the piece lands
+    private static String follow(Bitboard board, TetrominoType type, int rotation, int row, int column,
+            Iterable<Input> path) {
+        for (Input input : path) {
+            int r = row;
+            int c = column;
+            int rot = rotation;
+            switch (input) {
+                case LEFT:
+                    c--;
+                    break;
+                case RIGHT:
+                    c++;
+                    break;
+                case SOFT_DROP:
+                    r++;
+                    break;
+                case ROTATE_CLOCKWISE:
+                    rot = (rot + 1) & 3;
+                    break;
+                case ROTATE_COUNTER_CLOCKWISE:
+                    rot = (rot + 3) & 3;
+                    break;
+                case HARD_DROP:
+                    return footprint(type, rotation, row + board.dropDistance(type, rotation, row, column), column);
+                default:
+                    throw new AssertionError("Unexpected " + input + " in a path");
+            }
+            Check.isTrue(board.fits(type, rot, r, c), input + " in a path is blocked");
+            Check.isTrue(type.isRotatable() || rot == rotation, "O piece rotated in a path");
+            row = r;
+            column = c;
+            rotation = rot;
+        }
+        throw new AssertionError("Path without a HARD_DROP");
+    }
+
+    // The cells a piece covers, so placements reached in different rotation states compare equal
+    private static String footprint(TetrominoType type, int rotation, int row, int column) {
+        int[] rowOffsets = type.getRowOffsets(rotation);
+        int[] columnOffsets = type.getColumnOffsets(rotation);
+        long[] cells = new long[rowOffsets.length];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = (long) (row + rowOffsets[i]) << 32 | (column + columnOffsets[i]) & 0xFFFFFFFFL;
+        }
+        Arrays.sort(cells);
+        StringBuilder builder = new StringBuilder(type.name());
+        for (long cell : cells) {
+            builder.append(' ').append(cell >> 32).append(',').append((int) cell);
+        }
+        return builder.toString();
+    }
+
+    private static long key(int row, int column, int rotation) {
+        return ((long) row << 32 | (column + 8) << 2 | rotation);
+    }
+
+    private static ByteBuffer snapshot(Grid grid) {
+        ByteBuffer buffer = ByteBuffer.allocate(grid.getSnapshotSize());
+        grid.writeSnapshot(buffer);
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.function.LongFunction;
+
+// Every kind of generator deals the same sequence again from the same seed, whether built directly or rebuilt
+// from its kind as replays and snapshots do, and the 7-bag deals each piece once in every run of seven
+public class PieceGeneratorTest {
+    private static final int PIECES = 7 * 500;
+    private static final TetrominoType[] TYPES = TetrominoType.values();
+
+    public static void main(String[] args) {
+        checkSeeded(UniformGenerator::new, "uniform");
+        checkSeeded(BagGenerator::new, "bag");
+        checkSeeded(HistoryGenerator::new, "history");
+        checkSeeded(seed -> new HistoryGenerator(seed, 1, 1), "history of 1, 1 roll");
+        checkSeeded(seed -> new HistoryGenerator(seed, 6, 8), "history of 6, 8 rolls");
+        checkBag();
+        Check.throwsIllegalArgument(() -> new HistoryGenerator(1, 7, 4), "history longer than the state holds");
+        Check.throwsIllegalArgument(() -> PieceGenerator.create(3, 1), "unknown kind");
+        System.out.println("PieceGeneratorTest ok");
+    }
+
+    private static void checkSeeded(LongFunction<PieceGenerator> generators, String name) {
+        for (long seed = 0; seed < 20; seed++) {
+            PieceGenerator generator = generators.apply(seed);
+            PieceGenerator again = generators.apply(seed);
+            PieceGenerator rebuilt = PieceGenerator.create(generator.getKind(), generator.getSeed());
+            PieceGenerator other = generators.apply(seed + 1000);
+            int[] counts = new int[TYPES.length];
+            boolean differs = false;
+            for (int i = 0; i < PIECES; i++) {
+                TetrominoType type = generator.next();
+                Check.equal(type, again.next(), name + " piece " + i + " of seed " + seed);
+                Check.equal(type, rebuilt.next(), name + " piece " + i + " of seed " + seed + " rebuilt from its kind");
+                differs |= type != other.next();
+                counts[type.ordinal()]++;
+            }
+            Check.isTrue(differs, name + " seeds " + seed + " and " + (seed + 1000) + " deal the same pieces");
+            for (TetrominoType type : TYPES) {
+                Check.isTrue(counts[type.ordinal()] > 0, name + " seed " + seed + " never dealt " + type);
+            }
+        }
+    }
+
+    private static void checkBag() {
+        for (long seed = 0; seed < 20; seed++) {
+            PieceGenerator generator = new BagGenerator(seed);
+            for (int bag = 0; bag < PIECES / 7; bag++) {
+                boolean[] dealt = new boolean[TYPES.length];
+                for (int i = 0; i < 7; i++) {
+                    TetrominoType type = generator.next();
+                    Check.isTrue(!dealt[type.ordinal()], type + " twice in bag " + bag + " of seed " + seed);
+                    dealt[type.ordinal()] = true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+// Records seeded sessions, resets included, and plays them back through Replay, which must end in the same game
+// having locked the same pieces. Covers both simulation modes, blocked inputs and archives of several replays
+public class ReplayTest {
+    public static void main(String[] args) throws IOException {
+        check(new Grid(22, 1, new UniformGenerator(1)), true, 1);
+        check(new Grid(22, 1, new BagGenerator(2)), false, 2);
+        check(new Grid(30, 4, new HistoryGenerator(3, 2, 6)), true, 3);
+        checkBlocked();
+        checkArchive();
+        System.out.println("ReplayTest ok");
+    }
+
+    private static void check(Grid grid, boolean eventDriven, long seed) {
+        HeadlessSimulation simulation = new HeadlessSimulation(grid, eventDriven);
+        ReplayRecorder recorder = new ReplayRecorder(grid, simulation::getTick);
+        grid.addListener(recorder);
+        Locks recorded = new Locks();
+        grid.addListener(recorded);
+
+        Random random = new Random(seed);
+        int resets = 0;
+        for (int i = 0; i < 300; i++) {
+            Games.play(simulation, random, 1);
+            if (grid.isGameOver() || random.nextInt(100) == 0) {
+                simulation.runUntil(simulation.getTick() + random.nextInt(50));
+                grid.reset();
+                resets++;
+            }
+        }
+        simulation.runUntil(simulation.getTick() + random.nextInt(500));
+        Check.isTrue(resets > 0, "no resets were recorded");
+
+        ByteBuffer buffer = recorder.toByteBuffer(simulation.getTick());
+        Locks replayed = new Locks();
+        Grid replay = Replay.play(buffer, replayed);
+        Check.equal(0, buffer.remaining(), "bytes left after the replay");
+        Check.sameGame(grid, replay, "replayed game");
+        Check.equal(recorded.pieces, replayed.pieces, "pieces locked over the session");
+        Check.equal(recorded.lines, replayed.lines, "lines cleared over the session");
+        Check.isTrue(recorded.lines > 0, "no lines were cleared");
+    }
+
+    // Inputs that change nothing are not events, so a key held against a wall records only its real moves
+    private static void checkBlocked() {
+        Grid grid = new Grid(22, 1, new BagGenerator(4));
+        ReplayRecorder recorder = new ReplayRecorder(grid, () -> 0);
+        grid.addListener(recorder);
+        int moved = 0;
+        for (int i = 0; i < 20; i++) {
+            if (grid.apply(Input.LEFT))
+                moved++;
+        }
+        Check.isTrue(moved > 0 && moved < 20, "piece moved " + moved + " times");
+        Check.equal(moved, recorder.getEventCount(), "events recorded");
+        Check.sameGame(grid, Replay.play(recorder.toByteBuffer(0)), "replay of blocked moves");
+    }
+
+    private static void checkArchive() throws IOException {
+        Path archive = Files.createTempFile("replays", ".bin");
+        try {
+            Grid[] games = new Grid[3];
+            int events = 0;
+            for (int g = 0; g < games.length; g++) {
+                games[g] = new Grid(22, 1, new BagGenerator(10 + g));
+                HeadlessSimulation simulation = new HeadlessSimulation(games[g]);
+                ReplayRecorder recorder = new ReplayRecorder(games[g], simulation::getTick);
+                games[g].addListener(recorder);
+                Games.play(simulation, new Random(g), 20);
+                recorder.appendTo(archive, simulation.getTick());
+                events += recorder.getEventCount();
+            }
+
+            int[] scanned = new int[1];
+            Check.equal(games.length, Replay.scan(archive, new ReplayVisitor() {
+                @Override
+                public void event(long tick, int code) {
+                    scanned[0]++;
+                }
+            }), "replays in the archive");
+            Check.equal(events, scanned[0], "events in the archive");
+
+            ByteBuffer buffer = Replay.map(archive);
+            for (int g = 0; g < games.length; g++) {
+                Check.sameGame(games[g], Replay.play(buffer), "replay " + g + " of the archive");
+            }
+            Check.equal(0, buffer.remaining(), "bytes left after the archive");
+        } finally {
+            Files.delete(archive);
+        }
+    }
+
+    private static class Locks implements GridListener {
+        private long pieces;
+        private long lines;
+
+        @Override
+        public void pieceLocked(Grid grid, Tetromino tetromino) {
+            pieces++;
+        }
+
+        @Override
+        public void linesCleared(Grid grid, int linesCleared) {
+            lines += linesCleared;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+// Rewinds seeded games by pieces and by ticks and compares the result with snapshots a plain listener took at
+// every spawn, so the ring, its limits and the checkpoints' shared rows are all checked against full copies
+public class RewindTest {
+    public static void main(String[] args) {
+        check(1, 10, 0);
+        check(2, 3, 0);
+        check(3, 40, 60);
+        checkBounds();
+        checkMismatch();
+        checkHugeBoard();
+        System.out.println("RewindTest ok");
+    }
+
+    private static void check(long seed, int maxEntries, long maxAge) {
+        Random random = new Random(seed);
+        Grid grid = new Grid(22, 1, new BagGenerator(seed));
+        long[] clock = new long[1];
+        Rewind rewind = new Rewind(grid, () -> clock[0], maxEntries, maxAge);
+        Reference reference = new Reference(grid, () -> clock[0], maxEntries, maxAge);
+
+        for (int round = 0; round < 200; round++) {
+            if (grid.isGameOver()) {
+                grid.reset();
+                Check.equal(1, rewind.getSize(), "entries after a reset");
+            }
+            for (int i = random.nextInt(6); i > 0 && !grid.isGameOver(); i--) {
+                clock[0] += random.nextInt(20);
+                Games.play(grid, random, 1);
+            }
+            Check.equal(reference.size(), rewind.getSize(), "entries kept in round " + round);
+
+            if (random.nextBoolean()) {
+                int pieces = 1 + random.nextInt(maxEntries + 2);
+                int back = rewind.rewindPieces(pieces);
+                Check.equal(Math.min(pieces, reference.size()), back, "pieces gone back in round " + round);
+                reference.keep(reference.size() - back + 1);
+            } else {
+                long ticksBack = random.nextInt(80);
+                int entry = reference.size() - 1;
+                while (entry > 0 && reference.ticks.get(entry) > clock[0] - ticksBack) {
+                    entry--;
+                }
+                long tick = reference.ticks.get(entry);
+                Check.equal(tick, rewind.rewindTicks(ticksBack), "tick gone back to in round " + round);
+                reference.keep(entry + 1);
+            }
+            Check.equal(reference.size(), rewind.getSize(), "entries kept after rewinding in round " + round);
+            Check.sameGame(reference.newest(), grid, "rewound game in round " + round);
+        }
+    }
+
+    private static void checkBounds() {
+        Grid grid = new Grid(22, 1, new BagGenerator(4));
+        Rewind rewind = new Rewind(grid, () -> 0, 5, 0);
+        for (int i = 0; i < 3; i++) {
+            grid.apply(Input.HARD_DROP);
+        }
+        Check.equal(4, rewind.getSize(), "entries after three pieces");
+        Check.throwsIllegalArgument(() -> rewind.getCheckpoint(0), "checkpoint 0 pieces ago");
+        Check.throwsIllegalArgument(() -> rewind.getCheckpoint(5), "checkpoint older than any kept");
+        Check.throwsIllegalArgument(() -> new Rewind(grid, () -> 0, 0, 0), "rewind with no room");
+
+        Grid first = new Grid(22, 1, new BagGenerator(4));
+        grid.restore(rewind.getCheckpoint(4));
+        Check.sameGame(first, grid, "oldest checkpoint");
+    }
+
+    private static void checkMismatch() {
+        GridCheckpoint checkpoint = new Grid(22, 3, new BagGenerator(5)).checkpoint();
+        Check.throwsIllegalArgument(() -> new Grid(24, 3, new BagGenerator(5)).restore(checkpoint),
+                "checkpoint restored into a bigger game");
+        Check.throwsIllegalArgument(() -> new Grid(22, 1, new BagGenerator(5)).restore(checkpoint),
+                "checkpoint restored into a game started at another level");
+        Check.throwsIllegalArgument(() -> new Grid(22, 3, new UniformGenerator(5)).restore(checkpoint),
+                "checkpoint restored into a game with another generator");
+    }
+
+    // Checkpoints hold the stack only, so on a mostly empty huge board they stay small and still restore exactly
+    private static void checkHugeBoard() {
+        Grid grid = new Grid(4000, 1, new BagGenerator(6));
+        Rewind rewind = new Rewind(grid, () -> 0, 100, 0);
+        Games.play(grid, new Random(6), 30);
+        Check.isTrue(rewind.getCheckpoint(1).getBoard().rows.length < 4000 / 10, "checkpoint of "
+                + rewind.getCheckpoint(1).getBoard().rows.length + " rows on a mostly empty board");
+        Games.play(grid, new Random(7), 10);
+        rewind.rewindPieces(rewind.getSize());
+        Check.equal(grid.getBoard().getHeight(), grid.getBoard().getTop(), "top after rewinding to the start");
+        Check.sameGame(new Grid(4000, 1, new BagGenerator(6)), grid, "huge board rewound to the start");
+    }
+
+    // Every spawn as a full snapshot, dropped the way Rewind documents its limits
+    private static class Reference implements GridListener {
+        private final List<ByteBuffer> snapshots = new ArrayList<>();
+        private final List<Long> ticks = new ArrayList<>();
+        private final LongSupplier clock;
+        private final int maxEntries;
+        private final long maxAge;
+
+        Reference(Grid grid, LongSupplier clock, int maxEntries, long maxAge) {
+            this.clock = clock;
+            this.maxEntries = maxEntries;
+            this.maxAge = maxAge;
+            grid.addListener(this);
+            pieceSpawned(grid, grid.getCurrentTetromino());
+        }
+
+        @Override
+        public void pieceSpawned(Grid grid, Tetromino tetromino) {
+            ByteBuffer buffer = ByteBuffer.allocate(grid.getSnapshotSize());
+            grid.writeSnapshot(buffer);
+            buffer.flip();
+            long now = clock.getAsLong();
+            snapshots.add(buffer);
+            ticks.add(now);
+            while (size() > maxEntries || maxAge > 0 && size() > 1 && now - ticks.get(0) > maxAge) {
+                snapshots.remove(0);
+                ticks.remove(0);
+            }
+        }
+
+        @Override
+        public void gameReset(Grid grid) {
+            snapshots.clear();
+            ticks.clear();
+            pieceSpawned(grid, grid.getCurrentTetromino());
+        }
+
+        void keep(int entries) {
+            while (size() > entries) {
+                ticks.remove(size() - 1);
+                snapshots.remove(size() - 1);
+            }
+        }
+
+        int size() {
+            return snapshots.size();
+        }
+
+        Grid newest() {
+            return Grid.fromSnapshot(snapshots.get(size() - 1).duplicate());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+// Snapshots taken part way through random games must restore into a game that is the same now and keeps
+// playing the same under the same inputs, for every kind of generator and on a board too big to store densely
+public class SnapshotTest {
+    public static void main(String[] args) {
+        check(new Grid(22, 1, new UniformGenerator(1)), 1);
+        check(new Grid(40, 3, new BagGenerator(2)), 2);
+        check(new Grid(22, 1, new HistoryGenerator(3)), 3);
+        check(new Grid(22, 5, new HistoryGenerator(4, 6, 2)), 4);
+        checkSparse();
+        checkMismatch();
+        System.out.println("SnapshotTest ok");
+    }
+
+    private static void check(Grid grid, long seed) {
+        Random random = new Random(seed);
+        for (int round = 0; round < 40 && !grid.isGameOver(); round++) {
+            Games.play(grid, new Random(seed + round), 5);
+
+            ByteBuffer buffer = snapshot(grid);
+            Grid copy = Grid.fromSnapshot(buffer.duplicate());
+            Check.sameGame(grid, copy, "fromSnapshot in round " + round);
+
+            Grid into = new Grid(grid.getRows(), grid.getStartingLevel(),
+                    PieceGenerator.create(grid.getGenerator().getKind(), random.nextLong()));
+            Games.play(into, random, 3); // Whatever it held before must be gone
+            into.readSnapshot(buffer.duplicate());
+            Check.sameGame(grid, into, "readSnapshot in round " + round);
+
+            long inputs = random.nextLong();
+            Games.play(copy, new Random(inputs), 10);
+            Games.play(into, new Random(inputs), 10);
+            Grid original = Grid.fromSnapshot(buffer.duplicate());
+            Games.play(original, new Random(inputs), 10);
+            Check.sameGame(original, copy, "play after fromSnapshot in round " + round);
+            Check.sameGame(original, into, "play after readSnapshot in round " + round);
+        }
+    }
+
+    // Only the stack is stored, so a mostly empty huge board snapshots about as small as a normal one
+    private static void checkSparse() {
+        Grid grid = new Grid(4000, 1, new BagGenerator(5));
+        Games.play(grid, new Random(5), 50);
+        ByteBuffer buffer = snapshot(grid);
+        Check.isTrue(buffer.remaining() < 4000 * 2000 / 20, "snapshot of a mostly empty huge board is "
+                + buffer.remaining() + " bytes");
+        Check.sameGame(grid, Grid.fromSnapshot(buffer), "huge board");
+    }
+
+    private static void checkMismatch() {
+        ByteBuffer buffer = snapshot(new Grid(22, 1, new UniformGenerator(6)));
+        Check.throwsIllegalArgument(() -> new Grid(24, 1, new UniformGenerator(6)).readSnapshot(buffer.duplicate()),
+                "snapshot read into a bigger game");
+        Check.throwsIllegalArgument(() -> new Grid(22, 1, new BagGenerator(6)).readSnapshot(buffer.duplicate()),
+                "snapshot read into a game with another generator");
+        Check.throwsIllegalArgument(() -> new Grid(22, 2, new UniformGenerator(6)).readSnapshot(buffer.duplicate()),
+                "snapshot read into a game started at another level");
+    }
+
+    private static ByteBuffer snapshot(Grid grid) {
+        ByteBuffer buffer = ByteBuffer.allocate(grid.getSnapshotSize());
+        grid.writeSnapshot(buffer);
+        Check.equal(0, buffer.remaining(), "space left after writing a snapshot of getSnapshotSize() bytes");
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,41 @@
+import java.util.Random;
+
+// Stores and probes through the table's buckets, including key 0, which is the hash of an empty board
+public class TranspositionTableTest {
+    public static void main(String[] args) {
+        TranspositionTable table = new TranspositionTable(10);
+        Check.isTrue(Double.isNaN(table.probe(0)), "empty table has key 0");
+        Check.isTrue(Double.isNaN(table.probe(12345)), "empty table has key 12345");
+
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            long key = random.nextLong();
+            double value = random.nextDouble();
+            table.store(key, random.nextInt(10), value);
+            Check.isTrue(table.probe(key) == value, "value just stored");
+        }
+        table.clear();
+        table.store(0, 3, -1.5);
+        Check.isTrue(table.probe(0) == -1.5, "value stored for key 0");
+
+        // Keys that differ only above the bucket bits share a bucket of two entries
+        table.clear();
+        long step = table.getCapacity();
+        long deep = 7;
+        table.store(deep, 5, 1);
+        table.store(deep + step, 1, 2);
+        Check.isTrue(table.probe(deep) == 1 && table.probe(deep + step) == 2, "both entries of a bucket");
+        table.store(deep + 2 * step, 1, 3);
+        Check.isTrue(table.probe(deep) == 1, "deep entry kept over a shallow one");
+        Check.isTrue(Double.isNaN(table.probe(deep + step)), "latest shallow entry replaced");
+        Check.isTrue(table.probe(deep + 2 * step) == 3, "shallow entry stored");
+        table.store(deep, 0, 4);
+        Check.isTrue(table.probe(deep) == 4, "same key updated whatever its depth");
+
+        table.newGeneration();
+        table.store(deep + 3 * step, 0, 5);
+        Check.isTrue(table.probe(deep + 3 * step) == 5, "new generation replaces the old deep entry");
+        Check.isTrue(Double.isNaN(table.probe(deep)), "old deep entry replaced");
+        System.out.println("TranspositionTableTest ok");
+    }
+}
@@ -0,0 +1,65 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+// A run stopped after a generation and resumed from its checkpoint must play the same generations as one that
+// never stopped, down to the last bit of every weight, and a checkpoint only resumes a run with its settings
+public class WeightTunerTest {
+    private static final int POPULATION = 4;
+    private static final int GAMES = 2;
+    private static final int MAX_PIECES = 30;
+    private static final int ROWS = 12;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("tuning");
+        Path straight = directory.resolve("straight.txt");
+        Path resumed = directory.resolve("resumed.txt");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            WeightTuner tuner = new WeightTuner(POPULATION, GAMES, MAX_PIECES, ROWS, 1, pool);
+            tuner.step();
+            tuner.step();
+            tuner.save(straight);
+
+            WeightTuner first = new WeightTuner(POPULATION, GAMES, MAX_PIECES, ROWS, 1, pool);
+            first.step();
+            first.save(resumed);
+            WeightTuner second = new WeightTuner(POPULATION, GAMES, MAX_PIECES, ROWS, 2, pool); // Seed from the file
+            second.load(resumed);
+            Check.equal(1, second.getGeneration(), "generation after loading");
+            second.step();
+            second.save(resumed);
+
+            Check.equal(2, second.getGeneration(), "generation after resuming");
+            Check.isTrue(Arrays.equals(tuner.getMean(), second.getMean()), "mean after resuming: expected "
+                    + Arrays.toString(tuner.getMean()) + ", was " + Arrays.toString(second.getMean()));
+            Check.isTrue(Arrays.equals(tuner.getBest(), second.getBest()), "best after resuming");
+            Check.isTrue(tuner.getBestFitness() == second.getBestFitness(), "best fitness after resuming");
+            // The checkpoints hold the spreads as well, written so they read back exactly
+            Check.equal(Files.readAllLines(straight), Files.readAllLines(resumed), "checkpoint after resuming");
+
+            checkRejected(new WeightTuner(POPULATION + 1, GAMES, MAX_PIECES, ROWS, 1, pool), straight, "population");
+            checkRejected(new WeightTuner(POPULATION, GAMES + 1, MAX_PIECES, ROWS, 1, pool), straight, "games");
+            checkRejected(new WeightTuner(POPULATION, GAMES, MAX_PIECES + 1, ROWS, 1, pool), straight, "maxPieces");
+            checkRejected(new WeightTuner(POPULATION, GAMES, MAX_PIECES, ROWS + 2, 1, pool), straight, "rows");
+        } finally {
+            pool.shutdown();
+            Files.deleteIfExists(straight);
+            Files.deleteIfExists(resumed);
+            Files.delete(directory);
+        }
+        System.out.println("WeightTunerTest ok");
+    }
+
+    private static void checkRejected(WeightTuner tuner, Path checkpoint, String setting) {
+        try {
+            tuner.load(checkpoint);
+        } catch (IOException e) {
+            Check.isTrue(e.getMessage().contains(setting), "rejected for " + e.getMessage() + ", not " + setting);
+            return;
+        }
+        throw new AssertionError("checkpoint loaded with another " + setting);
+    }
+}
@@ -0,0 +1,6 @@
+# Tunes the bot's heuristic weights with WeightTuner, resuming from the checkpoint when it exists
+# Arguments: checkpoint file, generations, population, games per candidate, pieces per game, rows
+# e.g. nohup ./tune.sh tuning.txt 200 > tuning.log &
+mkdir -p tune_out
+javac --add-modules jdk.incubator.vector -d tune_out src/*.java vector/*.java
+java --add-modules jdk.incubator.vector -cp tune_out WeightTuner "$@"
@@ -0,0 +1,70 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// As many boards at a time as the CPU's preferred int vector holds, one lane per board, walking the columns
+// Kept out of src/ so the game compiles without the incubator module, only loaded when jdk.incubator.vector is
+// present at runtime, see Heuristic
+public class VectorBatchEvaluator implements BatchEvaluator {
+    private final VectorSpecies<Integer> SPECIES;
+
+    VectorBatchEvaluator() {
+        SPECIES = IntVector.SPECIES_PREFERRED;
+    }
+
+    // A vector of the given width whatever the CPU prefers, so the checks cover the narrower ones too
+    VectorBatchEvaluator(int bits) {
+        SPECIES = VectorSpecies.of(int.class, VectorShape.forBitSize(bits));
+    }
+
+    @Override
+    public void computeFeatures(BoardBatch batch) {
+        int columns = batch.getColumns();
+        int[] heights = batch.heights;
+        int[] holes = batch.holes;
+        IntVector wall = IntVector.broadcast(SPECIES, batch.getHeight());
+        IntVector zero = IntVector.zero(SPECIES);
+        int stride = BoardBatch.LANES;
+
+        // Blocks are whole, so the last vector may run past size() but never past the arrays
+        for (int b = 0; b < batch.size(); b += SPECIES.length()) {
+            int first = b / stride * columns * stride + b % stride;
+            int last = first + (columns - 1) * stride;
+
+            // The edge columns have a wall on one side, the rest are loaded fresh each column rather than
+            // carried over, vectors carried between loop iterations are not kept in registers
+            IntVector height = IntVector.fromArray(SPECIES, heights, first);
+            IntVector aggregateHeight = height;
+            IntVector totalHoles = IntVector.fromArray(SPECIES, holes, first);
+            IntVector bumpiness = zero;
+            IntVector wells = zero;
+            if (columns > 1) {
+                IntVector right = IntVector.fromArray(SPECIES, heights, first + stride);
+                bumpiness = height.sub(right).abs();
+                wells = right.sub(height).max(zero); // min(wall, right), nothing is taller than the wall
+            } else {
+                wells = wall.sub(height);
+            }
+            for (int i = first + stride; i < last; i += stride) {
+                IntVector left = IntVector.fromArray(SPECIES, heights, i - stride);
+                IntVector middle = IntVector.fromArray(SPECIES, heights, i);
+                IntVector right = IntVector.fromArray(SPECIES, heights, i + stride);
+                aggregateHeight = aggregateHeight.add(middle);
+                totalHoles = totalHoles.add(IntVector.fromArray(SPECIES, holes, i));
+                bumpiness = bumpiness.add(middle.sub(right).abs());
+                wells = wells.add(left.min(right).sub(middle).max(zero));
+            }
+            if (columns > 1) {
+                IntVector left = IntVector.fromArray(SPECIES, heights, last - stride);
+                IntVector end = IntVector.fromArray(SPECIES, heights, last);
+                aggregateHeight = aggregateHeight.add(end);
+                totalHoles = totalHoles.add(IntVector.fromArray(SPECIES, holes, last));
+                wells = wells.add(left.sub(end).max(zero));
+            }
+            aggregateHeight.intoArray(batch.aggregateHeight, b);
+            totalHoles.intoArray(batch.totalHoles, b);
+            bumpiness.intoArray(batch.bumpiness, b);
+            wells.intoArray(batch.wells, b);
+        }
+    }
+}